@@ -72,7 +72,7 @@ public class AiPlayer implements ReversiPlayer {
    */
   @Override
   public void myTurn() {
-    if (!model.getValidMoves().isEmpty()) {
+    if (model.hasValidMove()) {
       Optional<AxialCoordinate> best = strat.chooseMove(model, piece);
       if (!(best.get().getQ() == 0 && best.get().getR() == 0)) {
         model.movePiece(best.get().getQ(), best.get().getR());
@@ -19,21 +19,21 @@ public class AnyOpenCornerStrategy implements FallibleReversiStrategy {
   @Override
   public Optional<AxialCoordinate> chooseMove(ReadOnlyReversi model, Player player) {
     if (model.isValidMoves(0, (int) Math.ceil(model.getRows() / 2))) { // top left
-      return Optional.of(new AxialCoordinate(0, (int) Math.ceil(model.getRows() / 2)));
+      return Optional.of(AxialCoordinate.of(0, (int) Math.ceil(model.getRows() / 2)));
     } else if (model.isValidMoves((int) Math.ceil(model.getRows() / 2),
             (int) Math.ceil(model.getRows() / 2) * -1)) { // top right
-      return Optional.of(new AxialCoordinate((int) Math.ceil(model.getRows() / 2),
+      return Optional.of(AxialCoordinate.of((int) Math.ceil(model.getRows() / 2),
               (int) Math.ceil(model.getRows() / 2) * -1));
     } else if (model.isValidMoves((int) Math.ceil(model.getRows() / 2) * -1, 0)) { // left
-      return Optional.of(new AxialCoordinate((int) Math.ceil(model.getRows() / 2) * -1, 0));
+      return Optional.of(AxialCoordinate.of((int) Math.ceil(model.getRows() / 2) * -1, 0));
     } else if (model.isValidMoves((int) Math.ceil(model.getRows() / 2), 0)) { // right
-      return Optional.of(new AxialCoordinate((int) Math.ceil(model.getRows() / 2), 0));
+      return Optional.of(AxialCoordinate.of((int) Math.ceil(model.getRows() / 2), 0));
     } else if (model.isValidMoves((int) Math.ceil(model.getRows() / 2) * -1,
             (int) Math.ceil(model.getRows() / 2))) { // bottom left
-      return Optional.of(new AxialCoordinate((int) Math.ceil(model.getRows() / 2) * -1,
+      return Optional.of(AxialCoordinate.of((int) Math.ceil(model.getRows() / 2) * -1,
               (int) Math.ceil(model.getRows() / 2)));
     } else if (model.isValidMoves(0, (int) Math.ceil(model.getRows() / 2) * -1)) { // bottom right
-      return Optional.of(new AxialCoordinate(0, (int) Math.ceil(model.getRows() / 2) * -1));
+      return Optional.of(AxialCoordinate.of(0, (int) Math.ceil(model.getRows() / 2) * -1));
     } else {
       return Optional.empty();
     }
@@ -1,14 +1,23 @@
 package cs3500.reversi.model;
 
-import java.util.Objects;
-
 /**
  * Represents a coordinate in an axial coordinate system used in games like Hex-based games.
  * The axial coordinate system uses three coordinates: q, r, and s.
  * The relationship between q, r, and s is defined as q + r + s = 0.
+ * Coordinates are immutable, so {@link #of(int, int)} hands out one shared instance per cell
+ * and those instances can be compared by identity. The shared table starts out holding only
+ * the middle cell and grows whenever the {@link HexTopology} of a larger board is built,
+ * keeping the instances it already handed out. So every cell of every board in use has
+ * exactly one shared coordinate, no table is built for boards that are never used, and only
+ * coordinates off every such board are built fresh.
  */
 public class AxialCoordinate {
 
+  /**
+   * The shared coordinates, by q then r, starting from (-radius, -radius).
+   */
+  private static volatile AxialCoordinate[] shared = {new AxialCoordinate(0, 0)};
+
   /**
    * The horizontal coordinate representing the column in the axial coordinate system.
    */
@@ -37,6 +46,47 @@ public class AxialCoordinate {
     this.s = (q * -1) - r;
   }
 
+  /**
+   * Returns the shared coordinate with the given q and r. Coordinates inside the shared
+   * table, which covers every board built so far, are never allocated; ones outside it are
+   * built fresh.
+   *
+   * @param q The horizontal coordinate representing the column.
+   * @param r The vertical coordinate representing the row.
+   * @return The coordinate with those values.
+   */
+  public static AxialCoordinate of(int q, int r) {
+    AxialCoordinate[] table = shared;
+    int radius = -table[0].q;
+    if (q < -radius || q > radius || r < -radius || r > radius) {
+      return new AxialCoordinate(q, r);
+    }
+    return table[(q + radius) * (radius * 2 + 1) + r + radius];
+  }
+
+  /**
+   * Grows the shared table to cover every q and r up to the given radius. Coordinates
+   * already in the table are moved over, so identity is kept for them.
+   *
+   * @param radius the largest absolute q or r to share
+   */
+  static synchronized void share(int radius) {
+    int oldRadius = -shared[0].q;
+    if (radius <= oldRadius) {
+      return;
+    }
+    int width = radius * 2 + 1;
+    AxialCoordinate[] table = new AxialCoordinate[width * width];
+    for (int q = -radius; q <= radius; q++) {
+      for (int r = -radius; r <= radius; r++) {
+        table[(q + radius) * width + r + radius] =
+                Math.abs(q) <= oldRadius && Math.abs(r) <= oldRadius
+                        ? of(q, r) : new AxialCoordinate(q, r);
+      }
+    }
+    shared = table;
+  }
+
   /**
    * Constructor used to avoid mutation and create a copy of an axial coordinate.
    *
@@ -98,12 +148,12 @@ public class AxialCoordinate {
 
   /**
    * Generates a hash code for this AxialCoordinate.
-   * The hash code is based on the q and r coordinates.
+   * The hash code is based on the q and r coordinates, combined without boxing them.
    *
    * @return The hash code.
    */
   @Override
   public int hashCode() {
-    return Objects.hash(q, r);
+    return 31 * q + r;
   }
 }
@@ -2,29 +2,66 @@ package cs3500.reversi.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /**
  * Represents a basic implmeentation of HexVersi.
  * A version of Othello or Reversi played on a Hexagonal board.
  *
  * @field rows the number of rows in the board
+ * @field topology the cell numbering and ray tables shared by boards of this size
+ * @field lines the line pattern flip tables shared by boards of this size
  * @field gameStarted whether the game has started
  * @field hexCellMap a map of the cells in the board
+ * @field cells the same cells as hexCellMap, flattened in the order of the topology
  * @field currentPlayer the current player
  * @field consecutivePasses the number of consecutive passes
  * @field gameOver whether the game is over
+ * @field xCount the number of cells holding an X piece
+ * @field oCount the number of cells holding an O piece
+ * @field emptyCount the number of empty cells
+ * @field legalX the empty cells where X could move, by topology index
+ * @field legalO the empty cells where O could move, by topology index
+ * @field frontier the empty cells next to at least one piece, by topology index
+ * @field changedCells the cells placed or flipped by the move being applied
+ * @field changedCount the number of entries in changedCells
+ * @field flipBuffer scratch space for the flips found by collectFlips
+ * @field xPatterns the pattern of each line as seen by X, for lines with a pattern table
+ * @field oPatterns the pattern of each line as seen by O, for lines with a pattern table
+ * @field pieceKey the Zobrist key of the pieces on the board, without the side to move
+ * @field undoCells the placed cell of each move on the undo stack, or -1 for a pass
+ * @field undoPasses the number of consecutive passes before each move on the undo stack
+ * @field undoFlipEnds where the flipped cells of each move on the undo stack end in undoFlips
+ * @field undoFlips the cells flipped by the moves on the undo stack, one move after another
+ * @field ply the number of moves on the undo stack
+ * @field snapshot the last position handed out by snapshot, dropped when a piece changes
+ * @field lock the lock guarding the game in concurrent mode, or null otherwise
+ * @field engine the unchecked engine the checked methods delegate to
+ * @field moveCache the cache of move flip counts shared with other games, or null
  */
 public class BasicReversi implements Reversi, Observer {
   private final int rows;
 
+  private final HexTopology topology;
+
+  private final LineFlipTable lines;
+
   private boolean gameStarted;
 
   private final Map<Integer, HexCell[]> hexCellMap;
 
-  private List<Observer> listeners = new ArrayList<>();
+  private HexCell[] cells;
+
+  private List<Observer> listeners = new CopyOnWriteArrayList<>();
 
   private Player currentPlayer = Player.O;
 
@@ -32,13 +69,57 @@ public class BasicReversi implements Reversi, Observer {
 
   private boolean gameOver;
 
+  private int xCount;
+
+  private int oCount;
+
+  private int emptyCount;
+
+  private BitSet legalX = new BitSet();
+
+  private BitSet legalO = new BitSet();
+
+  private BitSet frontier = new BitSet();
+
+  private int[] changedCells;
+
+  private int changedCount;
+
+  private int[] flipBuffer;
+
+  private int[] xPatterns;
+
+  private int[] oPatterns;
+
+  private long pieceKey;
+
+  private int[] undoCells;
+
+  private int[] undoPasses;
+
+  private int[] undoFlipEnds;
+
+  private int[] undoFlips;
+
+  private int ply;
+
+  private ReversiPosition snapshot;
+
+  private final StampedLock lock;
+
+  private final Engine engine = new Engine();
+
+  private volatile MoveCache moveCache;
 
   /**
    * Constructs a game of Reversi with 5 rows.
    */
   public BasicReversi() {
     this.rows = 5;
+    this.topology = HexTopology.of(rows);
+    this.lines = LineFlipTable.of(rows);
     this.hexCellMap = new HashMap<>();
+    this.lock = null;
   }
 
   /**
@@ -52,6 +133,26 @@ public class BasicReversi implements Reversi, Observer {
   // INVARIANT: 'rows' is a positive odd integer greater than or equal to 5,
   // representing the number of rows in the Reversi game board.
   public BasicReversi(int i) throws IllegalArgumentException {
+    this(i, false);
+  }
+
+  /**
+   * Constructs a BasicReversi object with the given number of rows, optionally in concurrent
+   * mode.
+   * In concurrent mode other threads may read the game while moves are applied. Every move
+   * and pass holds a write lock while it changes the board, and listeners are notified after
+   * the lock is released, so a listener may play the next move. Each read runs optimistically
+   * without locking and is retried, again without locking, if a move changed the game in the
+   * meantime, so readers never see a half-flipped board and never hold up a move. Cells
+   * handed out by the game are copies, and a caller that needs several reads to agree should
+   * read them from one {@link #snapshot()}.
+   *
+   * @param i          the number of rows in the board
+   * @param concurrent whether the game may be read from other threads during moves
+   * @throws IllegalArgumentException if the desired row amount is less than 5 or is not an odd
+   *                                  number
+   */
+  public BasicReversi(int i, boolean concurrent) throws IllegalArgumentException {
     if (i >= 5) {
       if (i % 2 == 1) {
         this.rows = i;
@@ -61,7 +162,10 @@ public class BasicReversi implements Reversi, Observer {
     } else {
       throw new IllegalArgumentException("Invalid size");
     }
+    this.topology = HexTopology.of(rows);
+    this.lines = LineFlipTable.of(rows);
     this.hexCellMap = new HashMap<>();
+    this.lock = concurrent ? new StampedLock() : null;
   }
 
   /**
@@ -69,27 +173,43 @@ public class BasicReversi implements Reversi, Observer {
    * This constructor performs a deep copy of the hexagonal grid, ensuring
    * that each HexCell is duplicated
    * to prevent shared references between the original and the new instance.
+   * The copy is in concurrent mode and shares the move cache when the original does. The
+   * original must not be changed while it is copied; to copy a game that is being played on
+   * another thread, copy it on that thread.
    *
    * @param model The BasicReversi model to be copied.
    */
   public BasicReversi(BasicReversi model) {
     this.rows = model.rows;
+    this.lock = model.lock == null ? null : new StampedLock();
+    this.topology = model.topology;
+    this.lines = model.lines;
     this.gameStarted = model.gameStarted;
     this.hexCellMap = new HashMap<>();
-    for (Map.Entry<Integer, HexCell[]> entry : model.hexCellMap.entrySet()) {
-      int key = entry.getKey();
-      HexCell[] originalArray = entry.getValue();
-      HexCell[] newArray = new HexCell[originalArray.length];
-
-      for (int i = 0; i < originalArray.length; i++) {
-        newArray[i] = new HexCell(originalArray[i]);
+    if (model.cells != null) {
+      this.initBoard();
+      this.cells = new HexCell[model.cells.length];
+      for (int i = 0; i < cells.length; i++) {
+        this.placeCell(i, new HexCell(model.cells[i]));
       }
-
-      this.hexCellMap.put(key, newArray);
+      this.changedCells = new int[cells.length];
+      this.flipBuffer = new int[cells.length];
+      this.allocateUndo();
+      this.xPatterns = model.xPatterns.clone();
+      this.oPatterns = model.oPatterns.clone();
     }
     this.currentPlayer = model.currentPlayer;
     this.consecutivePasses = model.consecutivePasses;
     this.gameOver = model.gameOver;
+    this.xCount = model.xCount;
+    this.oCount = model.oCount;
+    this.emptyCount = model.emptyCount;
+    this.legalX = (BitSet) model.legalX.clone();
+    this.legalO = (BitSet) model.legalO.clone();
+    this.frontier = (BitSet) model.frontier.clone();
+    this.pieceKey = model.pieceKey;
+    this.snapshot = model.snapshot;
+    this.moveCache = model.moveCache;
   }
 
   /**
@@ -120,26 +240,51 @@ public class BasicReversi implements Reversi, Observer {
 
 
   /**
-   * Loops through the Hashmap getting each array that represents a row.
-   * It will create hexcell object with its expected
-   * Q and R coordinates and place it in its correct
-   * position in that row.
+   * Creates a hexcell object for every cell of the topology with its expected
+   * Q and R coordinates and places it in its correct
+   * position in its row and in the flat cell array.
    */
   private void fillCells() {
-    int length = (int) Math.floor((double) rows / 2);
-    for (int i = 0; i < rows; i++) {
-      HexCell[] array = this.hexCellMap.get(i);
-      int count = -i;
-      int negativeMid = -length;
-      for (int j = 0; j < array.length; j++) {
-        if (i >= length) {
-          array[j] = new HexCell(negativeMid + j, (i - length));
-          continue;
-        }
-        array[j] = new HexCell(count, (i - length));
-        count++;
-      }
-    }
+    this.cells = new HexCell[topology.cellCount()];
+    for (int i = 0; i < cells.length; i++) {
+      this.placeCell(i, new HexCell(topology.q(i), topology.r(i)));
+    }
+    this.xCount = 0;
+    this.oCount = 0;
+    this.emptyCount = cells.length;
+    this.frontier.clear();
+    this.changedCells = new int[cells.length];
+    this.flipBuffer = new int[cells.length];
+    this.allocateUndo();
+    this.xPatterns = new int[lines.lineCount()];
+    this.oPatterns = new int[lines.lineCount()];
+    this.pieceKey = 0;
+  }
+
+  /**
+   * Allocates an empty undo stack. A game plays at most one move per empty cell and never
+   * passes twice in a row without ending, so twice the cell count bounds the moves on the
+   * stack. The flipped cells start with room for a few flips per move and grow when a long
+   * game needs more.
+   */
+  private void allocateUndo() {
+    int plies = 2 * cells.length + 2;
+    this.undoCells = new int[plies];
+    this.undoPasses = new int[plies];
+    this.undoFlipEnds = new int[plies];
+    this.undoFlips = new int[4 * cells.length];
+    this.ply = 0;
+  }
+
+  /**
+   * Stores a cell at the given index, both in the flat cell array and in its row of the map.
+   *
+   * @param index the index of the cell in the topology
+   * @param cell  the cell to store
+   */
+  private void placeCell(int index, HexCell cell) {
+    cells[index] = cell;
+    hexCellMap.get(topology.row(index))[topology.column(index)] = cell;
   }
 
   /**
@@ -150,18 +295,63 @@ public class BasicReversi implements Reversi, Observer {
    * @throws IllegalStateException if the game has already started
    */
   public void startGame() throws IllegalStateException {
-    if (gameStarted) {
-      throw new IllegalStateException("Game already started");
+    long stamp = lockWrite();
+    try {
+      if (gameStarted) {
+        throw new IllegalStateException("Game already started");
+      }
+      this.initBoard();
+      this.fillCells();
+      this.setInitialPieces();
+      this.recomputeLegalMoves();
+      gameStarted = true;
+      consecutivePasses = 0;
+      gameOver = false;
+    } finally {
+      unlockWrite(stamp);
     }
-    this.initBoard();
-    this.fillCells();
-    this.setInitialPieces();
-    gameStarted = true;
-    consecutivePasses = 0;
-    gameOver = false;
     notice();
   }
 
+  /**
+   * Overwrites this game in place with the state of another started game of the same size,
+   * so one board can be reused for many simulations instead of copying a new one each time.
+   * Only the cells that differ are changed, and the legal move sets are rebuilt from the
+   * frontier. The listeners are kept and not notified.
+   *
+   * @param source the game to copy, which is read through one consistent snapshot
+   * @throws IllegalArgumentException if the source has a different number of rows
+   * @throws IllegalStateException    if the source has not started
+   */
+  public void copyFrom(ReadOnlyReversi source) {
+    if (source.getRows() != rows) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    ReversiPosition position = ReversiPosition.of(source);
+    long stamp = lockWrite();
+    try {
+      if (cells == null) {
+        this.initBoard();
+        this.fillCells();
+      }
+      for (int i = 0; i < cells.length; i++) {
+        Player piece = position.getPieceAt(i);
+        if (cells[i].getPiece() != piece) {
+          changePiece(cells[i], piece);
+        }
+      }
+      this.recomputeLegalMoves();
+      ply = 0;
+      gameStarted = true;
+      currentPlayer = position.getCurrentPlayer();
+      consecutivePasses = position.getConsecutivePasses();
+      gameOver = position.isGameOver();
+      snapshot = position;
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
   /**
    * Sets the initial pieces on the board.
    * Creates a ring of alternating pieces around the middle cell of the hexagon.
@@ -210,575 +400,548 @@ public class BasicReversi implements Reversi, Observer {
    */
   private void setCell(int q, int r, Player player) {
     validInput(q, r);
-    HexCell cell = findCell(q, r);
-    cell.setPiece(player);
+    changePiece(cellAt(topology.index(q, r)), player);
   }
 
   /**
-   * Uses desired q and r coordinates to extract the cell from the game board.
-   * Uses the r extract the row from the hashmap.
-   * Loops through the row looking for the desired cell.
-   * Returns the desired cell.
+   * Takes the write lock in concurrent mode.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return the cell with the matching axial coordinates
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
-   * @throws IllegalArgumentException if the given q and r did not yield a cell from the board.
+   * @return the stamp to release the lock with, or 0 when there is no lock
    */
-  public HexCell findCell(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    HexCell[] cells = hexCellMap.get(r + length);
-    for (HexCell cell : cells) {
-      if (cell.getR() == r && cell.getQ() == q) {
-        return cell; // Return the cell with the matching axial coordinates
-      }
+  private long lockWrite() {
+    return lock == null ? 0 : lock.writeLock();
+  }
+
+  /**
+   * Releases the write lock taken by {@link #lockWrite()}.
+   *
+   * @param stamp the stamp returned when the lock was taken
+   */
+  private void unlockWrite(long stamp) {
+    if (lock != null) {
+      lock.unlockWrite(stamp);
     }
-    throw new IllegalArgumentException("No matching cell found."); // If no matching cell is found
   }
 
   /**
-   * Finds a cell on the board using a desired s coordinate.
-   * Similar to findcell but makes easier searching of cells by their s
-   * by taking in s as an input.
+   * Runs a read of the game. Outside concurrent mode it simply runs. In concurrent mode it
+   * runs without locking and keeps the result only if no move started in the meantime; a
+   * read that overlapped a move, including one that failed on the half-changed state, is
+   * run again, still without locking. Readers never take the read lock, so they can not hold
+   * up a move; they only wait out a move that is being applied.
    *
-   * @param s the s coordinate
-   * @param r the r coordinate
-   * @return the cell with the matching axial coordinates
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param reader the read to run, which must not change the game
+   * @param <T>    the type of the result
+   * @return the result of the read
    */
-  private HexCell findCellByS(int s, int r) throws IllegalArgumentException {
-    validInput(-r - s, r);
-    int length = (int) Math.floor((double) rows / 2);
-    HexCell[] cells = hexCellMap.get(r + length);
-    for (HexCell cell : cells) {
-      if (s == cell.getS()) {
-        return cell; // Return the cell with the matching axial coordinates
+  private <T> T read(Supplier<T> reader) {
+    if (lock == null) {
+      return reader.get();
+    }
+    while (true) {
+      long stamp = optimisticStamp();
+      try {
+        T result = reader.get();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException e) {
+        if (lock.validate(stamp)) {
+          throw e;
+        }
       }
     }
-    throw new IllegalArgumentException("No Matching Cell"); // If no matching cell is found
   }
 
   /**
-   * Converts position in hashmap(key in map and index in array) to axial coordinates.
+   * Starts an optimistic read in concurrent mode, spinning while a move holds the write lock.
    *
-   * @param column the index
-   * @param row    the row
-   * @return the axial coordinates
+   * @return the stamp to validate the read with
    */
-  private int[] converter(int column, int row) {
-    int q;
-    int r;
-    int length = (int) Math.floor((double) rows / 2);
-    if (row >= length) {
-      q = (-1 * length) + column;
-    } else {
-      q = -1 * row + column;
+  private long optimisticStamp() {
+    long stamp = lock.tryOptimisticRead();
+    while (stamp == 0) {
+      Thread.onSpinWait();
+      stamp = lock.tryOptimisticRead();
     }
-    r = row - length;
-    return new int[]{q, r};
+    return stamp;
   }
 
   /**
-   * Determines if a move is valid to the left of a desired cell for the current player.
-   * Loops backwards in the array checking if the first cell to the left is not empty or
-   * is already filled by a piece from the same player making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
+   * Returns the cell a reader may keep: the cell itself, or a copy in concurrent mode so
+   * later moves do not change it under the reader.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return whether the move is valid
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell the cell on the board
+   * @return the cell to hand out
    */
-  private boolean validMovesBackwards(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    boolean back = false;
-    if (row >= length) {
-      column = q + length;
-    } else {
-      column = q + row;
+  private HexCell handOut(HexCell cell) {
+    return lock == null ? cell : new HexCell(cell);
+  }
+
+  /**
+   * Changes the piece of a cell and keeps the piece counts and the position key in step with
+   * the board. Any cached snapshot no longer matches the board and is dropped.
+   * Placing a piece on an empty cell or emptying a cell also updates the frontier; a flip
+   * leaves it as it is.
+   *
+   * @param cell  the cell to change
+   * @param piece the new piece, or null to empty the cell
+   */
+  private void changePiece(HexCell cell, Player piece) {
+    snapshot = null;
+    int index = topology.index(cell.getQ(), cell.getR());
+    pieceKey ^= topology.pieceKey(index, cell.getPiece()) ^ topology.pieceKey(index, piece);
+    boolean wasEmpty = cell.getPiece() == null;
+    lines.update(xPatterns, oPatterns, index, cell.getPiece(), piece);
+    countPiece(cell.getPiece(), -1);
+    cell.setPiece(piece);
+    countPiece(piece, 1);
+    if (wasEmpty != (piece == null)) {
+      updateFrontier(index);
     }
-    if (column > 0) {
-      for (int i = column - 1; i >= 0; i--) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
-        }
-        if (curr.getPiece().equals(currentPlayer)) {
-          if (i != column - 1) {
-            back = true;
-          }
-          break;
-        } else {
-          if (i == 0) {
-            break;
-          }
-        }
+  }
+
+  /**
+   * Updates the frontier after the given cell was filled or emptied. A filled cell leaves
+   * the frontier and its empty neighbors join it. An emptied cell and its empty neighbors
+   * stay in the frontier only while another piece still touches them.
+   *
+   * @param cell the index of the cell that was filled or emptied
+   */
+  private void updateFrontier(int cell) {
+    boolean filled = cellAt(cell).getPiece() != null;
+    frontier.set(cell, !filled && touchesPiece(cell));
+    for (int neighbor : topology.neighbors(cell)) {
+      if (cellAt(neighbor).getPiece() == null) {
+        frontier.set(neighbor, filled || touchesPiece(neighbor));
       }
     }
-    return back;
   }
 
   /**
-   * Uses similar logic to the validMovesBackwards method.
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
+   * Determines whether any cell next to the given one holds a piece.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell the index of the cell
+   * @return whether the cell has an occupied neighbor
    */
-  private void flipBackwards(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    if (row >= length) {
-      column = q + length;
-    } else {
-      column = q + row;
-    }
-    if (column > 0) {
-      for (int i = column - 1; i >= 0; i--) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
-        }
-        if (curr.getPiece().equals(currentPlayer)) {
-          break;
-        } else {
-          curr.setPiece(currentPlayer);
-        }
+  private boolean touchesPiece(int cell) {
+    for (int neighbor : topology.neighbors(cell)) {
+      if (cellAt(neighbor).getPiece() != null) {
+        return true;
       }
     }
+    return false;
   }
 
   /**
-   * Determines if a move is valid to the right of a desired cell for the current player.
-   * Loops forwards in the array checking if the first cell to the right is not empty or
-   * is already filled by a piece from the same player making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
+   * Adds the given amount to the count of cells holding the given piece.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return whether the move is valid
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param piece  the piece, or null for empty cells
+   * @param amount the amount to add
    */
-  private boolean validMovesForward(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    boolean forward = false;
-    if (row >= length) {
-      column = q + length;
+  private void countPiece(Player piece, int amount) {
+    if (piece == Player.X) {
+      xCount += amount;
+    } else if (piece == Player.O) {
+      oCount += amount;
     } else {
-      column = q + row;
+      emptyCount += amount;
     }
-    HexCell[] desiredRow = hexCellMap.get(row);
-    if (column >= 0) {
-      for (int i = column + 1; i < desiredRow.length; i++) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
-        }
-        if (curr.getPiece().equals(currentPlayer)) {
-          if (i != column + 1) {
-            forward = true;
-          }
-          break;
-        }
-      }
-    }
-    return forward;
   }
 
   /**
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
+   * Uses desired q and r coordinates to extract the cell from the game board.
+   * The topology turns the coordinates into an index of the flat cell array using the
+   * offset of the row, so no hashing or searching is needed.
+   * Returns the desired cell, or a copy of it in concurrent mode.
    *
    * @param q the q coordinate
    * @param r the r coordinate
+   * @return the cell with the matching axial coordinates
    * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
    *                                  if the q coordinate is out of bounds for that desired row.
    */
-  private void flipForward(int q, int r) throws IllegalArgumentException {
+  public HexCell findCell(int q, int r) throws IllegalArgumentException {
     validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    if (row >= length) {
-      column = q + length;
-    } else {
-      column = q + row;
-    }
-    HexCell[] desiredRow = hexCellMap.get(row);
-    if (column >= 0) {
-      for (int i = column + 1; i < desiredRow.length; i++) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
+    return read(() -> handOut(cells[topology.index(q, r)]));
+  }
+
+  /**
+   * Returns the cell with the given index in the board's topology.
+   *
+   * @param index the index of the cell
+   * @return the cell at that index
+   */
+  private HexCell cellAt(int index) {
+    return cells[index];
+  }
+
+  /**
+   * Finds the pieces the given player would flip by placing a piece at the given cell.
+   * The two rays along each line through the cell are looked up in the line pattern tables,
+   * and lines too long for a table are walked ray by ray.
+   * The flippable cells are written to the buffer in ray order. Without a buffer the search
+   * stops at the first flippable ray, which is all a validity check needs.
+   * The cell itself is not checked to be empty.
+   *
+   * @param cell   the index of the cell
+   * @param player the player making the move
+   * @param out    the buffer to write the flippable cells to, or null to only test
+   * @return the number of flippable cells, or without a buffer a positive number if any exist
+   */
+  private int walkFlips(int cell, Player player, int[] out) {
+    int[] patterns = player == Player.X ? xPatterns : oPatterns;
+    int count = 0;
+    for (int axis = 0; axis < LineFlipTable.AXES; axis++) {
+      int packed = lines.flips(patterns, cell, axis);
+      for (int side = 0; side < 2; side++) {
+        int dir = axis * 2 + side;
+        int run = packed == LineFlipTable.UNCOVERED
+                ? walkRay(cell, dir, player) : packed >>> (side * 4) & 15;
+        if (run == 0) {
+          continue;
         }
-        if (curr.getPiece().equals(currentPlayer)) {
-          break;
-        } else {
-          curr.setPiece(currentPlayer);
+        if (out == null) {
+          return run;
         }
+        System.arraycopy(topology.ray(cell, dir), 0, out, count, run);
+        count += run;
       }
     }
+    return count;
   }
 
   /**
-   * Determines if a move is valid in the q coordinate upwards
-   * direction of a desired cell for the current player.
-   * Loops diagonally through the board checking if the first cell with same q in the
-   * row above is not empty or is already filled by a piece from the same player
-   * making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
-   * Traverses diagonally by lowering the r coordinate, therefore moving upwards through the board.
+   * Walks one ray leaving the cell: the run of opposing pieces next to the cell is
+   * flippable when the first cell past it holds the player's own piece, and is dropped when
+   * the run hits an empty cell or the board edge.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return whether the move is valid
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell   the index of the cell
+   * @param dir    the direction of the ray
+   * @param player the player making the move
+   * @return the number of flippable cells along the ray
    */
-  private boolean validQUp(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r - count);
-      } catch (IllegalArgumentException e) {
-        return false;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        return false;
+  private int walkRay(int cell, int dir, Player player) {
+    int[] ray = topology.ray(cell, dir);
+    for (int run = 0; run < ray.length; run++) {
+      Player piece = cellAt(ray[run]).getPiece();
+      if (piece == null) {
+        return 0;
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        return count != 1;
-      } else {
-        count++;
+      if (piece == player) {
+        return run;
       }
     }
+    return 0;
   }
 
   /**
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
-   * Traverses diagonally by lowering the r coordinate, therefore moving upwards through the board.
+   * Determines if the given player could place a piece on the given cell.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell   the index of the cell
+   * @param player the player making the move
+   * @return whether the cell is empty and the move flips in at least one direction
    */
-  private void flipQUp(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r - count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        curr.setPiece(currentPlayer);
-        count++;
-      }
-    }
+  private boolean isLegalFor(int cell, Player player) {
+    return frontier.get(cell) && walkFlips(cell, player, null) > 0;
   }
 
   /**
-   * Determines if a move is valid in the q coordinate downwards
-   * direction of a desired cell for the current player.
-   * Loops diagonally through the board checking if the first cell with the same q in the row
-   * below is not empty or is already filled by a piece from the same player
-   * making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
-   * Traverses diagonally by increasing the r coordinate, therefore moving downwards
-   * through the board.
+   * Returns the set of empty cells where the given player could move.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return whether the move is valid
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param player the player
+   * @return the legal moves of that player, by topology index
    */
-  private boolean validQDown(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r + count);
-      } catch (IllegalArgumentException e) {
-        return false;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        return false;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        return count != 1;
-      } else {
-        count++;
-      }
+  private BitSet legalMovesOf(Player player) {
+    return player == Player.X ? legalX : legalO;
+  }
+
+  /**
+   * Checks every frontier cell for both players, filling the legal move sets from scratch.
+   * A move has to flip a neighbor, so no cell outside the frontier can be legal and the
+   * cost follows the played area rather than the size of the board.
+   */
+  private void recomputeLegalMoves() {
+    legalX.clear();
+    legalO.clear();
+    for (int cell = frontier.nextSetBit(0); cell >= 0; cell = frontier.nextSetBit(cell + 1)) {
+      recheckLegal(cell);
     }
   }
 
   /**
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
-   * Traverses diagonally by increasing the r coordinate, therefore
-   * moving downwards through the board.
+   * Checks one cell for both players and records the result in the legal move sets.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell the index of the cell
    */
-  private void flipQDown(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r + count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        curr.setPiece(currentPlayer);
-        count++;
+  private void recheckLegal(int cell) {
+    legalX.set(cell, isLegalFor(cell, Player.X));
+    legalO.set(cell, isLegalFor(cell, Player.O));
+  }
+
+  /**
+   * Updates the legal move sets after the cells in changedCells were placed or flipped.
+   * A changed piece can only matter to an empty cell whose ray reaches it through occupied
+   * cells, so from each changed cell it walks every ray past the occupied cells and rechecks
+   * the first empty cell it meets. The changed cells are rechecked as well, so a placed cell
+   * leaves both sets and a cell emptied by an undo can rejoin them.
+   */
+  private void updateLegalMoves() {
+    for (int i = 0; i < changedCount; i++) {
+      int changed = changedCells[i];
+      recheckLegal(changed);
+      for (int dir = 0; dir < HexTopology.DIRECTIONS; dir++) {
+        for (int index : topology.ray(changed, dir)) {
+          if (cellAt(index).getPiece() == null) {
+            recheckLegal(index);
+            break;
+          }
+        }
       }
     }
   }
 
   /**
-   * Determines if a move is valid in the s coordinate upwards
-   * direction of a desired cell for the current player.
-   * Loops diagonally through the board checking if the first cell with the same s in the row
-   * above is not empty or is already filled by a piece from the same player
-   * making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
-   * Traverses diagonally by decreasing the r coordinate, therefore moving upwards
-   * through the board.
+   * Sets the piece of the desired cell based of the given coordinates to the current player.
+   * Valid moves will flip opponents players pieces to the current players pieces if the move is
+   * valid in that direction.
    *
    * @param q the q coordinate
    * @param r the r coordinate
-   * @return whether the move is valid
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalStateException    if the game is already over
    * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
    *                                  if the q coordinate is out of bounds for that desired row.
+   * @throws IllegalStateException    if the move is not allowable (i.e. the move is not
+   *                                  logically possible) or a piece already exists in that
+   *                                  position.
    */
-  private boolean validSUp(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r - count);
-      } catch (IllegalArgumentException e) {
-        return false;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        return false;
+  public void movePiece(int q, int r) throws IllegalStateException, IllegalArgumentException {
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        return count != 1;
-      } else {
-        count++;
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
       }
+      validInput(q, r);
+      engine.play(checkedMove(topology.index(q, r)));
+    } finally {
+      unlockWrite(stamp);
     }
+    this.notice();
   }
 
   /**
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
-   * Traverses diagonally by deceasing the r coordinate, therefore
-   * moving upwards through the board.
+   * Plays the current player's piece on the cell with the given number in row order.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @param cell the number of the cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalStateException    if the game is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
    */
-  private void flipSUp(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r - count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
+  @Override
+  public void movePiece(int cell) {
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        curr.setPiece(currentPlayer);
-        count++;
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
       }
+      validIndex(cell);
+      engine.play(checkedMove(cell));
+    } finally {
+      unlockWrite(stamp);
     }
+    this.notice();
   }
 
   /**
-   * Determines if a move is valid in the s coordinate downwards
-   * direction of a desired cell for the current player.
-   * Loops diagonally through the board checking if the first cell with the same s in the row
-   * below is not empty or is already filled by a piece from the same player
-   * making the move invalid.
-   * It will keep looping if the cells aren't empty and are occupied by the opposing player.
-   * If it finds a piece that belong to the current player the move is valid.
-   * Traverses diagonally by increasing the r coordinate, therefore moving upwards
-   * through the board.
+   * Determines whether neither player can move, read from the legal move sets. This covers
+   * a full board as well, since a full board leaves both sets empty.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return whether the move is valid
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @return whether the game can not go on
    */
-  private boolean validSDown(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r + count);
-      } catch (IllegalArgumentException e) {
-        return false;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        return false;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        return count != 1;
-      } else {
-        count++;
-      }
+  private boolean noMovesLeft() {
+    return legalX.isEmpty() && legalO.isEmpty();
+  }
+
+  /**
+   * Flips every piece the current player captures from the given cell, walking each ray
+   * once. Afterwards changedCells holds the flipped cells.
+   *
+   * @param cell the index of the cell
+   * @return whether anything was flipped
+   */
+  private boolean flipAll(int cell) {
+    changedCount = walkFlips(cell, currentPlayer, changedCells);
+    for (int i = 0; i < changedCount; i++) {
+      changePiece(cellAt(changedCells[i]), currentPlayer);
+    }
+    return changedCount > 0;
+  }
+
+  /**
+   * Plays the current player's piece on the given empty cell if that flips anything.
+   * Flips the captured pieces, places the piece, updates the legal move sets and hands the
+   * turn to the other player. Afterwards changedCells holds the flipped cells followed by the
+   * placed cell.
+   *
+   * @param cell the index of the cell
+   * @return whether the move was valid and played
+   */
+  private boolean playCell(int cell) {
+    if (!flipAll(cell)) {
+      return false;
     }
+    changePiece(cellAt(cell), currentPlayer);
+    changedCells[changedCount++] = cell;
+    updateLegalMoves();
+    currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
+    consecutivePasses = 0;
+    return true;
   }
 
   /**
-   * Called only if move is valid in a certain direction.
-   * Since move is valid, loops through and any pieces of the opposing players are set
-   * to the current player's pieces.
-   * Stops at the first instance that a piece belongs to the current player.
-   * Traverses diagonally by increasing the r coordinate, therefore
-   * moving downwards through the board.
+   * Plays the current player's piece at the given coordinates without notifying listeners
+   * and returns a record that can take the move back.
    *
    * @param q the q coordinate
    * @param r the r coordinate
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
+   * @return a record of the move
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
    */
-  private void flipSDown(int q, int r) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r + count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
+  @Override
+  public MoveRecord makeMove(int q, int r) {
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        curr.setPiece(currentPlayer);
-        count++;
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
       }
+      validInput(q, r);
+      engine.play(checkedMove(topology.index(q, r)));
+      return lastRecord();
+    } finally {
+      unlockWrite(stamp);
     }
   }
 
   /**
-   * Sets the piece of the desired cell based of the given coordinates to the current player.
-   * Valid moves will flip opponents players pieces to the current players pieces if the move is
-   * valid in that direction.
+   * Plays the current player's piece on the cell with the given number in row order without
+   * notifying listeners and returns a record that can take the move back.
    *
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @throws IllegalStateException    if the game has not started
-   * @throws IllegalStateException    if the game is already over
-   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
-   *                                  if the q coordinate is out of bounds for that desired row.
-   * @throws IllegalStateException    if the move is not allowable (i.e. the move is not
-   *                                  logically possible) or a piece already exists in that
-   *                                  position.
+   * @param cell the number of the cell
+   * @return a record of the move
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
    */
-  public void movePiece(int q, int r) throws IllegalStateException, IllegalArgumentException {
-    if (!gameStarted) {
-      throw new IllegalStateException("Game has not started yet");
-    }
-    if (gameOver) {
-      throw new IllegalStateException("Game is over");
+  @Override
+  public MoveRecord makeMove(int cell) {
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
+      }
+      validIndex(cell);
+      engine.play(checkedMove(cell));
+      return lastRecord();
+    } finally {
+      unlockWrite(stamp);
     }
-    validInput(q, r);
-    HexCell curr = findCell(q, r);
-    if (curr == null || curr.getPiece() != null) {
+  }
+
+  /**
+   * Checks that the current player may place a piece on the given cell, reading the legal
+   * move set.
+   *
+   * @param cell the index of the cell
+   * @return the cell
+   * @throws IllegalStateException if the move is not allowable or the cell is occupied
+   */
+  private int checkedMove(int cell) {
+    if (cellAt(cell).getPiece() != null) {
       throw new IllegalStateException("Can't Put Piece on Another Piece");
     }
-    if (isValidMove(q, r)) {
-      setCell(q, r, currentPlayer);
-      currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
-      consecutivePasses = 0;
-      this.notice();
-    } else {
+    if (!legalMovesOf(currentPlayer).get(cell)) {
       throw new IllegalStateException("Not a valid move");
     }
+    return cell;
+  }
+
+  /**
+   * Passes the turn without notifying listeners and returns a record that can take the pass
+   * back.
+   *
+   * @return a record of the pass
+   * @throws IllegalStateException if the game has not started or is already over
+   */
+  @Override
+  public MoveRecord makePass() {
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
+      }
+      engine.pass();
+      return lastRecord();
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Builds the record of the move on top of the undo stack.
+   *
+   * @return a record of the last move
+   */
+  private MoveRecord lastRecord() {
+    int top = ply - 1;
+    int start = top == 0 ? 0 : undoFlipEnds[top - 1];
+    Player mover = currentPlayer == Player.X ? Player.O : Player.X;
+    return new MoveRecord(undoCells[top], undoFlipEnds[top] - start, mover, ply);
+  }
+
+  /**
+   * Restores the state from before the given move. Flipped pieces go back to the opponent,
+   * the placed cell is emptied and the legal move sets are updated around those cells.
+   *
+   * @param record the record returned when the move was made
+   * @throws IllegalArgumentException if the record is not of the last move not yet undone
+   */
+  @Override
+  public void unmakeMove(MoveRecord record) {
+    long stamp = lockWrite();
+    try {
+      if (record == null || record.depth != ply) {
+        throw new IllegalArgumentException("Not the last move");
+      }
+      engine.undo();
+    } finally {
+      unlockWrite(stamp);
+    }
   }
 
   /**
    * For a given cell, uses all the previous helpers to check all the different directions for
    * a possible move.
-   * A subsequent valid move leads to a call to flip helpers to flip opponents pieces for those
-   * valid moves.
+   * Like {@link #isValidMoves(int, int)} this only reads the board: the pieces are flipped
+   * when the move is played.
    *
    * @param q the q coordinate
    * @param r the r coordinate
@@ -787,32 +950,8 @@ public class BasicReversi implements Reversi, Observer {
    *                                  if the q coordinate is out of bounds for that desired row.
    */
   public boolean isValidMove(int q, int r) throws IllegalArgumentException {
-    boolean valid = false;
-    if (validMovesBackwards(q, r)) {
-      valid = true;
-      flipBackwards(q, r);
-    }
-    if (validMovesForward(q, r)) {
-      valid = true;
-      flipForward(q, r);
-    }
-    if (validQUp(q, r)) {
-      flipQUp(q, r);
-      valid = true;
-    }
-    if (validQDown(q, r)) {
-      flipQDown(q, r);
-      valid = true;
-    }
-    if (validSUp(q, r)) {
-      flipSUp(q, r);
-      valid = true;
-    }
-    if (validSDown(q, r)) {
-      flipSDown(q, r);
-      valid = true;
-    }
-    return valid;
+    validInput(q, r);
+    return read(() -> walkFlips(topology.index(q, r), currentPlayer, null) > 0);
   }
 
   /**
@@ -827,70 +966,195 @@ public class BasicReversi implements Reversi, Observer {
    *                                  if the q coordinate is out of bounds for that desired row.
    */
   public boolean isValidMoves(int q, int r) throws IllegalArgumentException {
-    boolean valid = false;
-    if (validMovesBackwards(q, r)) {
-      valid = true;
-    }
-    if (validMovesForward(q, r)) {
-      valid = true;
-    }
-    if (validQUp(q, r)) {
-      valid = true;
-    }
-    if (validQDown(q, r)) {
-      valid = true;
-    }
-    if (validSUp(q, r)) {
-      valid = true;
-    }
-    if (validSDown(q, r)) {
-      valid = true;
-    }
-    return valid;
+    validInput(q, r);
+    return read(() -> walkFlips(topology.index(q, r), currentPlayer, null) > 0);
+  }
+
+
+  /**
+   * Determines whether the current player could place a piece on the cell with the given
+   * number, by reading the legal move set.
+   *
+   * @param cell the number of the cell in row order
+   * @return whether the move is valid
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  @Override
+  public boolean isValidMoves(int cell) {
+    return read(() -> {
+      validIndex(cell);
+      return engine.isLegal(cell);
+    });
+  }
+
+  /**
+   * Determines whether the given player could place a piece at the given coordinates, by
+   * reading that player's legal move set. Unlike {@link #isValidMove(int, int)} this also
+   * checks that the cell is empty.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return whether the move is valid for that player
+   * @throws IllegalArgumentException if the coordinates are not in bound or the player is null
+   */
+  @Override
+  public boolean isValidMove(int q, int r, Player player) {
+    validInput(q, r);
+    validPlayer(player);
+    return read(() -> legalMovesOf(player).get(topology.index(q, r)));
   }
 
+  /**
+   * Helper that checks a player was given.
+   *
+   * @param player the player
+   * @throws IllegalArgumentException if the player is null
+   */
+  private void validPlayer(Player player) {
+    if (player == null) {
+      throw new IllegalArgumentException("Invalid player");
+    }
+  }
 
   /**
    * Passes the move to the next player.
    * If passMove is called consecutively it will end the game.
+   * The board does not change, so the legal move sets stay as they are and the next player
+   * simply reads the other set. The turn and the pass count change together under one write
+   * lock, and the listeners are notified afterwards, so they see a second pass end the game.
    *
    * @throws IllegalStateException if the game has not started
    * @throws IllegalStateException if the game is already over
    */
   public void passMove() throws IllegalStateException {
-    if (!gameStarted) {
-      throw new IllegalStateException("Game has not started yet");
-    }
-    if (gameOver) {
-      throw new IllegalStateException("Game is over");
+    long stamp = lockWrite();
+    try {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
+      }
+      engine.pass();
+    } finally {
+      unlockWrite(stamp);
     }
-    currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
     this.notice();
-    consecutivePasses++;
-    if (consecutivePasses == 2) {
-      gameOver = true;
-    }
   }
 
   /**
-   * Returns the game board for the current game.
+   * Returns the game board for the current game. In concurrent mode the cells are copies.
    *
    * @throws IllegalStateException if the game has not started
    */
   public Map<Integer, HexCell[]> getBoard() {
-    Map<Integer, HexCell[]> originalMap = this.hexCellMap;
+    return read(() -> {
+      Map<Integer, HexCell[]> originalMap = this.hexCellMap;
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      Map<Integer, HexCell[]> copyMap = new HashMap<>();
+      for (Map.Entry<Integer, HexCell[]> entry : originalMap.entrySet()) {
+        Integer key = entry.getKey();
+        HexCell[] originalValue = entry.getValue();
+        HexCell[] copyValue = Arrays.copyOf(originalValue, originalValue.length);
+        for (int i = 0; i < copyValue.length; i++) {
+          copyValue[i] = handOut(copyValue[i]);
+        }
+        copyMap.put(key, copyValue);
+      }
+
+      return copyMap;
+    });
+  }
+
+  /**
+   * Returns the number of cells on the board.
+   *
+   * @return the number of cells
+   */
+  @Override
+  public int getCellCount() {
+    return topology.cellCount();
+  }
+
+  /**
+   * Returns a copy of the cell with the given number in row order, so changing it cannot
+   * put the board out of step with the counts, keys and legal move sets kept beside it.
+   *
+   * @param index the number of the cell
+   * @return the cell with that number
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public HexCell getCellAt(int index) {
+    return read(() -> {
+      validIndex(index);
+      return new HexCell(cellAt(index));
+    });
+  }
+
+  /**
+   * Returns the piece on the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the piece on that cell, or null if it is empty
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public Player getPieceAt(int index) {
+    return read(() -> {
+      validIndex(index);
+      return engine.pieceAt(index);
+    });
+  }
+
+  /**
+   * Returns the shared coordinate of the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the coordinate of that cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public AxialCoordinate getCoordAt(int index) {
+    validIndex(index);
+    return topology.coord(index);
+  }
+
+  /**
+   * Returns the number in row order of the cell at the given coordinates.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the number of that cell
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  @Override
+  public int getCellIndex(int q, int r) {
+    validInput(q, r);
+    return topology.index(q, r);
+  }
+
+  /**
+   * Helper that checks the game has started and the given cell number is on the board.
+   *
+   * @param index the number of the cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  private void validIndex(int index) {
     if (!gameStarted) {
       throw new IllegalStateException("Game has not started yet");
     }
-    Map<Integer, HexCell[]> copyMap = new HashMap<>();
-    for (Map.Entry<Integer, HexCell[]> entry : originalMap.entrySet()) {
-      Integer key = entry.getKey();
-      HexCell[] originalValue = entry.getValue();
-      HexCell[] copyValue = Arrays.copyOf(originalValue, originalValue.length);
-      copyMap.put(key, copyValue);
+    if (index < 0 || index >= topology.cellCount()) {
+      throw new IllegalArgumentException("Invalid index");
     }
-
-    return copyMap;
   }
 
   /**
@@ -901,32 +1165,37 @@ public class BasicReversi implements Reversi, Observer {
   }
 
   /**
-   * Determines if the board is filled, with no more moves.
+   * Determines if the game is over: both players passed in a row, or after a move neither
+   * player had a legal move left, which includes a full board. Moves keep the flag up to
+   * date from the legal move sets, so this only reads it. A move that ends the game sets the
+   * flag before the listeners are notified.
    *
    * @return whether the game is over
    * @throws IllegalStateException if the game has not started
    */
   public boolean isGameOver() throws IllegalStateException {
-    if (!gameStarted) {
-      throw new IllegalStateException("Game has not started yet");
-    }
-    if (gameOver) {
-      return true;
-    }
-    int count = 0;
-    for (int i = 0; i < rows; i++) {
-      HexCell[] array = hexCellMap.get(i);
-      for (HexCell hexCell : array) {
-        if (hexCell.getPiece() == null) {
-          count++;
-        }
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-    }
-    if (count == 0) {
-      gameOver = true;
-      return true;
-    }
-    return false;
+      return gameOver;
+    });
+  }
+
+  /**
+   * Returns the number of passes in a row that led to the current position.
+   *
+   * @return the number of consecutive passes
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public int getConsecutivePasses() {
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      return consecutivePasses;
+    });
   }
 
   /**
@@ -935,10 +1204,12 @@ public class BasicReversi implements Reversi, Observer {
    * @throws IllegalStateException if the game has not started
    */
   public Player getCurrentPlayer() {
-    if (!gameStarted) {
-      throw new IllegalStateException("Game has not started yet");
-    }
-    return currentPlayer;
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      return currentPlayer;
+    });
   }
 
   /**
@@ -950,44 +1221,185 @@ public class BasicReversi implements Reversi, Observer {
    * @throws IllegalStateException if the game is already over
    */
   public int getScore(Player p) {
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      if (gameOver) {
+        throw new IllegalStateException("Game is over");
+      }
+      return engine.score(p);
+    });
+  }
+
+  /**
+   * Returns a list of valid moves for the current player.
+   * Reads the legal move set kept up to date by each move, in row order.
+   *
+   * @return a list of valid moves for the current player
+   */
+  public List<AxialCoordinate> getValidMoves() {
+    return read(() -> getValidMoves(currentPlayer));
+  }
+
+  /**
+   * Returns a list of valid moves for the given player, read from that player's legal move
+   * set in row order. Both sets are kept up to date by every move, so asking for the
+   * player who is not to move costs the same.
+   *
+   * @param player the player to list moves for
+   * @return a list of valid moves for that player
+   * @throws IllegalArgumentException if the player is null
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves(Player player) {
+    validPlayer(player);
+    return read(() -> {
+      BitSet legal = legalMovesOf(player);
+      List<AxialCoordinate> validMoves = new ArrayList<>(legal.cardinality());
+      for (int cell = legal.nextSetBit(0); cell >= 0; cell = legal.nextSetBit(cell + 1)) {
+        validMoves.add(topology.coord(cell));
+      }
+      return validMoves;
+    });
+  }
+
+  /**
+   * Determines whether the current player has a valid move by checking that the legal move
+   * set is not empty.
+   *
+   * @return whether a valid move exists
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public boolean hasValidMove() {
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      return !legalMovesOf(currentPlayer).isEmpty();
+    });
+  }
+
+  /**
+   * Returns an iterator that walks the current player's legal move set one move at a time.
+   * In concurrent mode a move could change the set while it is walked, so the iterator walks
+   * a list of the moves read at once instead.
+   *
+   * @return a lazy iterator over the valid moves
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public Iterator<AxialCoordinate> validMoveIterator() {
+    if (lock != null) {
+      return Collections.unmodifiableList(read(() -> {
+        if (!gameStarted) {
+          throw new IllegalStateException("Game has not started yet");
+        }
+        return getValidMoves(currentPlayer);
+      })).iterator();
+    }
     if (!gameStarted) {
       throw new IllegalStateException("Game has not started yet");
     }
-    if (gameOver) {
-      throw new IllegalStateException("Game is over");
-    }
-    int score = 0;
-    for (int i = 0; i < rows; i++) {
-      HexCell[] array = hexCellMap.get(i);
-      for (HexCell hexCell : array) {
-        if (hexCell.getPiece() != null && hexCell.getPiece().equals(p)) {
-          score++;
+    BitSet legal = legalMovesOf(currentPlayer);
+    return new Iterator<AxialCoordinate>() {
+      private int next = legal.nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public AxialCoordinate next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
         }
+        AxialCoordinate move = topology.coord(next);
+        next = legal.nextSetBit(next + 1);
+        return move;
       }
-    }
-    return score;
+    };
   }
 
   /**
-   * Returns a list of valid moves for the current player.
+   * Fills the given list with the valid moves of the current player, read from the legal
+   * move set in row order.
    *
-   * @return a list of valid moves for the current player
+   * @param moves the list to fill
+   * @throws IllegalStateException if the game has not started
    */
-  public List<AxialCoordinate> getValidMoves() {
-    List<AxialCoordinate> validMoves = new ArrayList<>();
-    for (int i = 0; i < rows; i++) {
-      HexCell[] arrayCopy = Arrays.copyOf(hexCellMap.get(i), hexCellMap.get(i).length);
-      for (HexCell hexCell : arrayCopy) {
-        if (hexCell.getPiece() == null) {
-          if (isValidMoves(hexCell.getQ(), hexCell.getR())) {
-            int q = hexCell.getQ();
-            int r = hexCell.getR();
-            validMoves.add(new AxialCoordinate(q, r));
+  @Override
+  public void getValidMoves(MoveList moves) {
+    read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
+      }
+      engine.legalMoves(moves);
+      return moves;
+    });
+  }
+
+  /**
+   * Finds every legal move of the current player with the number of pieces it flips.
+   * Reads the legal move set and walks the rays of each move once. With a move cache, a
+   * position found there is copied out instead, and a position that is not is stored after
+   * it is worked out. In concurrent mode a cached read is optimistic like any other, and it
+   * only stores a result once the read is known not to have overlapped a move, so nothing
+   * read from a half-changed board is stored.
+   *
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of legal moves written to the buffers
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public int getMoveFlipCounts(int[] moves, int[] flipCounts) {
+    MoveCache cache = moveCache;
+    if (cache == null) {
+      return read(() -> {
+        if (!gameStarted) {
+          throw new IllegalStateException("Game has not started yet");
+        }
+        return engine.moveFlipCounts(moves, flipCounts);
+      });
+    }
+    while (true) {
+      long stamp = lock == null ? 0 : optimisticStamp();
+      try {
+        if (!gameStarted) {
+          throw new IllegalStateException("Game has not started yet");
+        }
+        long key = engine.positionKey();
+        int count = cache.lookup(cells.length, key, moves, flipCounts);
+        boolean found = count >= 0;
+        if (!found) {
+          count = engine.moveFlipCounts(moves, flipCounts);
+        }
+        if (lock == null || lock.validate(stamp)) {
+          if (!found) {
+            cache.store(cells.length, key, moves, flipCounts, count);
           }
+          return count;
+        }
+      } catch (RuntimeException e) {
+        if (lock == null || lock.validate(stamp)) {
+          throw e;
         }
       }
     }
-    return validMoves;
+  }
+
+  /**
+   * Sets the cache {@link #getMoveFlipCounts(int[], int[])} looks positions up in. The same
+   * cache may be given to any number of games. Games have no cache unless given one, and
+   * the other move queries never use it.
+   *
+   * @param cache the cache to use, or null for none
+   */
+  public void setMoveCache(MoveCache cache) {
+    this.moveCache = cache;
   }
 
   /**
@@ -1011,219 +1423,235 @@ public class BasicReversi implements Reversi, Observer {
   }
 
   /**
-   * Collects the pieces that need to be flipped in the backwards direction.
+   * Collects all the pieces that need to be flipped for a given cell.
    * @param q the q coordinate
    * @param r the r coordinate
-   * @param list the list of pieces to be flipped
+   * @return the list of pieces to be flipped
    * @throws IllegalArgumentException if the coordinates are not in bound
    */
-  private void collectBackwards(int q, int r, List<HexCell> list)
-          throws IllegalArgumentException {
+  public List<HexCell> collectFlips(int q, int r) throws IllegalArgumentException {
     validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    if (row >= length) {
-      column = q + length;
-    } else {
-      column = q + row;
-    }
-    if (column > 0) {
-      for (int i = column - 1; i >= 0; i--) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
-        }
-        if (curr.getPiece().equals(currentPlayer)) {
-          break;
-        } else {
-          list.add(curr);
-        }
-      }
-    }
+    return read(() -> collectFlips(q, r, currentPlayer));
   }
 
   /**
-   * Collects the pieces that need to be flipped in the forward direction.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @param list the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
+   * Collects all the pieces the given player would flip by placing a piece at the given
+   * cell, without changing the game.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return the list of pieces to be flipped
+   * @throws IllegalArgumentException if the coordinates are not in bound or the player is null
    */
-  private void collectForward(int q, int r, List<HexCell> list) throws
-          IllegalArgumentException {
+  @Override
+  public List<HexCell> collectFlips(int q, int r, Player player) {
     validInput(q, r);
-    int length = (int) Math.floor((double) rows / 2);
-    int row = r + length;
-    int column;
-    if (row >= length) {
-      column = q + length;
-    } else {
-      column = q + row;
-    }
-    HexCell[] desiredRow = hexCellMap.get(row);
-    if (column >= 0) {
-      for (int i = column + 1; i < desiredRow.length; i++) {
-        int[] nums = converter(i, row);
-        HexCell curr = findCell(nums[0], nums[1]);
-        if (curr.getPiece() == null) {
-          break;
-        }
-        if (curr.getPiece().equals(currentPlayer)) {
-          break;
-        } else {
-          list.add(curr);
-        }
+    validPlayer(player);
+    return read(() -> {
+      int[] buffer = lock == null ? flipBuffer : new int[cells.length];
+      int count = walkFlips(topology.index(q, r), player, buffer);
+      List<HexCell> list = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        list.add(handOut(cellAt(buffer[i])));
       }
-    }
+      return list;
+    });
   }
 
   /**
-   * Collects the pieces that need to be flipped in the q upwards direction.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @param list the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
+   * Returns an immutable snapshot of the current position. The snapshot is cached and
+   * handed out again until a piece changes or the turn state moves on, so taking one after
+   * every move costs a single pass over the board.
+   * In concurrent mode the cache is only written under the write lock, so a reader builds
+   * its snapshot for itself instead of storing it in the game.
+   *
+   * @return the current position
+   * @throws IllegalStateException if the game has not started
    */
-  private void collectQUp(int q, int r, List<HexCell> list)
-          throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r - count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
+  public ReversiPosition snapshot() {
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        list.add(curr);
-        count++;
+      ReversiPosition position = snapshot;
+      if (position == null
+              || !position.hasTurnState(currentPlayer, consecutivePasses, gameOver)) {
+        Player[] pieces = new Player[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+          pieces[i] = cells[i].getPiece();
+        }
+        position = ReversiPosition.fromPieces(rows, pieces, currentPlayer, consecutivePasses,
+                gameOver);
+        if (lock == null) {
+          snapshot = position;
+        }
       }
-    }
+      return position;
+    });
   }
 
   /**
-   * Collects the pieces that need to be flipped in the q downwards direction.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @param list the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
+   * Returns the Zobrist key of the current position. The piece part is kept up to date by
+   * every piece change, and the side to move is folded in on read.
+   *
+   * @return the key of the current position
+   * @throws IllegalStateException if the game has not started
    */
-  private void collectQDown(int q, int r, List<HexCell> list)
-          throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCell(q, r + count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        list.add(curr);
-        count++;
+  @Override
+  public long getPositionKey() {
+    return read(() -> {
+      if (!gameStarted) {
+        throw new IllegalStateException("Game has not started yet");
       }
-    }
+      return engine.positionKey();
+    });
   }
 
   /**
-   * Collects the pieces that need to be flipped in the s upwards direction.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @param list the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
+   * Returns the unchecked engine behind this game, for trusted callers such as searches and
+   * {@link Perft} that have already proven their moves legal. Changes made through the engine
+   * are changes to this game. The engine takes no lock, so a game in concurrent mode does not
+   * hand it out.
+   *
+   * @return the engine of this game
+   * @throws IllegalStateException if the game has not started or is in concurrent mode
    */
-  private void collectSUp(int q, int r, List<HexCell> list) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r - count);
-      } catch (IllegalArgumentException e) {
-        break;
-      }
-      if (curr == null || curr.getPiece() == null) {
-        break;
-      }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        list.add(curr);
-        count++;
-      }
+  public ReversiEngine engine() {
+    if (lock != null) {
+      throw new IllegalStateException("Engine is not available in concurrent mode");
+    }
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
     }
+    return engine;
   }
 
   /**
-   * Collects the pieces that need to be flipped in the s downwards direction.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @param list the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
+   * The unchecked engine of this game. It works on the same state as the checked methods
+   * and reads the legal move sets and flip tables directly.
    */
-  private void collectSDown(int q, int r, List<HexCell> list) throws IllegalArgumentException {
-    validInput(q, r);
-    int count = 1;
-    while (true) {
-      HexCell curr;
-      try {
-        curr = findCellByS((-q) - r, r + count);
-      } catch (IllegalArgumentException e) {
-        break;
+  private final class Engine implements ReversiEngine {
+
+    @Override
+    public int cellCount() {
+      return cells.length;
+    }
+
+    @Override
+    public Player pieceAt(int cell) {
+      assert cell >= 0 && cell < cells.length : "Invalid index";
+      return cellAt(cell).getPiece();
+    }
+
+    @Override
+    public Player currentPlayer() {
+      return currentPlayer;
+    }
+
+    @Override
+    public boolean isOver() {
+      return gameOver;
+    }
+
+    @Override
+    public int score(Player player) {
+      if (player == Player.X) {
+        return xCount;
       }
-      if (curr == null || curr.getPiece() == null) {
-        break;
+      return player == Player.O ? oCount : 0;
+    }
+
+    @Override
+    public long positionKey() {
+      return currentPlayer == Player.X ? pieceKey ^ topology.sideKey() : pieceKey;
+    }
+
+    @Override
+    public boolean isLegal(int cell) {
+      assert cell >= 0 && cell < cells.length : "Invalid index";
+      return legalMovesOf(currentPlayer).get(cell);
+    }
+
+    @Override
+    public void legalMoves(MoveList moves) {
+      moves.clear();
+      BitSet legal = legalMovesOf(currentPlayer);
+      for (int cell = legal.nextSetBit(0); cell >= 0; cell = legal.nextSetBit(cell + 1)) {
+        moves.add(cell);
       }
-      if (curr.getPiece().equals(currentPlayer)) {
-        break;
-      } else {
-        list.add(curr);
+    }
+
+    @Override
+    public int moveFlipCounts(int[] moves, int[] flipCounts) {
+      int[] buffer = lock == null ? flipBuffer : new int[cells.length];
+      BitSet legal = legalMovesOf(currentPlayer);
+      int count = 0;
+      for (int cell = legal.nextSetBit(0); cell >= 0; cell = legal.nextSetBit(cell + 1)) {
+        moves[count] = cell;
+        flipCounts[count] = walkFlips(cell, currentPlayer, buffer);
         count++;
       }
+      return count;
     }
-  }
 
-  /**
-   * Collects all the pieces that need to be flipped for a given cell.
-   * @param q the q coordinate
-   * @param r the r coordinate
-   * @return the list of pieces to be flipped
-   * @throws IllegalArgumentException if the coordinates are not in bound
-   */
-  public List<HexCell> collectFlips(int q, int r) throws IllegalArgumentException {
-    List<HexCell> list = new ArrayList<>();
-    if (validMovesBackwards(q, r)) {
-      collectBackwards(q, r, list);
-    }
-    if (validMovesForward(q, r)) {
-      collectForward(q, r, list);
-    }
-    if (validQUp(q, r)) {
-      collectQUp(q, r, list);
+    @Override
+    public void play(int cell) {
+      assert gameStarted && !gameOver : "Game is over";
+      assert isLegal(cell) : "Not a valid move";
+      int passes = consecutivePasses;
+      playCell(cell);
+      gameOver = noMovesLeft();
+      int start = ply == 0 ? 0 : undoFlipEnds[ply - 1];
+      int flips = changedCount - 1;
+      if (start + flips > undoFlips.length) {
+        undoFlips = Arrays.copyOf(undoFlips, Math.max(2 * undoFlips.length, start + flips));
+      }
+      System.arraycopy(changedCells, 0, undoFlips, start, flips);
+      undoCells[ply] = cell;
+      undoPasses[ply] = passes;
+      undoFlipEnds[ply] = start + flips;
+      ply++;
     }
-    if (validQDown(q, r)) {
-      collectQDown(q, r, list);
+
+    @Override
+    public void pass() {
+      assert gameStarted && !gameOver : "Game is over";
+      undoCells[ply] = -1;
+      undoPasses[ply] = consecutivePasses;
+      undoFlipEnds[ply] = ply == 0 ? 0 : undoFlipEnds[ply - 1];
+      ply++;
+      currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
+      consecutivePasses++;
+      if (consecutivePasses == 2) {
+        gameOver = true;
+      }
     }
-    if (validSUp(q, r)) {
-      collectSUp(q, r, list);
+
+    @Override
+    public void undo() {
+      assert ply > 0 : "Nothing to undo";
+      ply--;
+      int cell = undoCells[ply];
+      if (cell >= 0) {
+        int start = ply == 0 ? 0 : undoFlipEnds[ply - 1];
+        changedCount = 0;
+        for (int i = start; i < undoFlipEnds[ply]; i++) {
+          changePiece(cellAt(undoFlips[i]), currentPlayer);
+          changedCells[changedCount++] = undoFlips[i];
+        }
+        changePiece(cellAt(cell), null);
+        changedCells[changedCount++] = cell;
+        updateLegalMoves();
+      }
+      currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
+      consecutivePasses = undoPasses[ply];
+      gameOver = false;
     }
-    if (validSDown(q, r)) {
-      collectSDown(q, r, list);
+
+    @Override
+    public int depth() {
+      return ply;
     }
-    return list;
   }
 }
@@ -0,0 +1,284 @@
+package cs3500.reversi.model;
+
+/**
+ * Holds many independent positions of one board size and evaluates them together, for
+ * self-play and analysis jobs that look at thousands of positions. Each position is packed
+ * into bitboards as in {@link BitboardReversi}, and the batch keeps them as parallel arrays
+ * of longs rather than as one object per position. {@link #evaluate()} then finds the legal
+ * moves, flip counts and scores of every position in passes over those arrays, one direction
+ * at a time. The pieces of the player to move and of the opponent are sorted out once per
+ * evaluation, so the inner loops run the same few shifts over consecutive memory with no
+ * branch that depends on the position.
+ * A position is added with {@link #add(ReadOnlyReversi)}, which returns a handle, and its
+ * results are read back by that handle. Only the pieces and the player to move are kept, so
+ * a position that is over is evaluated like any other.
+ *
+ * @field layout the shift tables for this board size
+ * @field xPieces the cells holding an X piece, by handle
+ * @field oPieces the cells holding an O piece, by handle
+ * @field xToMove whether X is to move, by handle
+ * @field own the cells of the player to move, by handle, set by each evaluation
+ * @field opp the cells of the other player, by handle, set by each evaluation
+ * @field legal the legal moves of the player to move, by handle, once evaluated
+ * @field runs scratch space for the flood fill, by handle
+ * @field flipCounts the pieces each cell flips, at handle times the cell count plus the cell
+ * @field xScores the number of X pieces, by handle, once evaluated
+ * @field oScores the number of O pieces, by handle, once evaluated
+ * @field size the number of positions in the batch
+ * @field evaluated whether every position in the batch has been evaluated
+ */
+public final class BatchBoards {
+  private final BitboardLayout layout;
+
+  private final long[] xPieces;
+
+  private final long[] oPieces;
+
+  private final boolean[] xToMove;
+
+  private final long[] own;
+
+  private final long[] opp;
+
+  private final long[] legal;
+
+  private final long[] runs;
+
+  private final byte[] flipCounts;
+
+  private final int[] xScores;
+
+  private final int[] oScores;
+
+  private int size;
+
+  private boolean evaluated;
+
+  /**
+   * Constructs an empty batch of boards with the given number of rows.
+   *
+   * @param rows     the number of rows of every board in the batch
+   * @param capacity the most positions the batch holds
+   * @throws IllegalArgumentException if the board does not fit in a long or the capacity is
+   *                                  not positive
+   */
+  public BatchBoards(int rows, int capacity) {
+    if (rows < 5) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity");
+    }
+    this.layout = BitboardLayout.of(rows);
+    this.xPieces = new long[capacity];
+    this.oPieces = new long[capacity];
+    this.xToMove = new boolean[capacity];
+    this.own = new long[capacity];
+    this.opp = new long[capacity];
+    this.legal = new long[capacity];
+    this.runs = new long[capacity];
+    this.flipCounts = new byte[capacity * layout.topology().cellCount()];
+    this.xScores = new int[capacity];
+    this.oScores = new int[capacity];
+  }
+
+  /**
+   * Adds a copy of the given game to the batch. The batch has to be evaluated again before
+   * any results are read.
+   *
+   * @param game a started game with the batch's number of rows
+   * @return the handle of the position
+   * @throws IllegalArgumentException if the game has a different number of rows
+   * @throws IllegalStateException    if the game has not started or the batch is full
+   */
+  public int add(ReadOnlyReversi game) {
+    if (game.getRows() != getRows()) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    if (size == xPieces.length) {
+      throw new IllegalStateException("Batch is full");
+    }
+    ReversiPosition position = ReversiPosition.of(game);
+    long x = 0;
+    long o = 0;
+    for (int cell = 0; cell < layout.topology().cellCount(); cell++) {
+      Player piece = position.getPieceAt(cell);
+      if (piece == Player.X) {
+        x |= 1L << cell;
+      } else if (piece == Player.O) {
+        o |= 1L << cell;
+      }
+    }
+    xPieces[size] = x;
+    oPieces[size] = o;
+    xToMove[size] = position.getCurrentPlayer() == Player.X;
+    evaluated = false;
+    return size++;
+  }
+
+  /**
+   * Removes every position from the batch, so its handles can be given out again.
+   */
+  public void clear() {
+    size = 0;
+    evaluated = false;
+  }
+
+  /**
+   * Finds the legal moves, flip counts and scores of every position in the batch.
+   * The legal moves come from a flood fill run for all positions at once: for each direction,
+   * every position takes the same number of steps, as many as the longest run of opposing
+   * pieces the board has room for, so no position waits on a loop condition of its own.
+   */
+  public void evaluate() {
+    long full = layout.fullMask();
+    int steps = getRows() - 3;
+    for (int i = 0; i < size; i++) {
+      own[i] = xToMove[i] ? xPieces[i] : oPieces[i];
+      opp[i] = xToMove[i] ? oPieces[i] : xPieces[i];
+      legal[i] = 0;
+    }
+    for (int d = 0; d < HexTopology.DIRECTIONS; d++) {
+      for (int i = 0; i < size; i++) {
+        runs[i] = layout.shift(own[i], d) & opp[i];
+      }
+      for (int step = 0; step < steps; step++) {
+        for (int i = 0; i < size; i++) {
+          runs[i] |= layout.shift(runs[i], d) & opp[i];
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        legal[i] |= layout.shift(runs[i], d);
+      }
+    }
+    int cellCount = layout.topology().cellCount();
+    for (int i = 0; i < size; i++) {
+      long x = xPieces[i];
+      long o = oPieces[i];
+      legal[i] &= ~(x | o) & full;
+      xScores[i] = Long.bitCount(x);
+      oScores[i] = Long.bitCount(o);
+    }
+    for (int i = 0; i < size; i++) {
+      int base = i * cellCount;
+      for (long moves = legal[i]; moves != 0; moves &= moves - 1) {
+        int cell = Long.numberOfTrailingZeros(moves);
+        flipCounts[base + cell] = (byte) Long.bitCount(layout.flips(cell, own[i], opp[i]));
+      }
+    }
+    evaluated = true;
+  }
+
+  /**
+   * Helper that checks a handle is in the batch and the batch has been evaluated.
+   *
+   * @param handle the handle of a position
+   * @throws IllegalArgumentException if the handle is not in the batch
+   * @throws IllegalStateException    if the batch has not been evaluated since it changed
+   */
+  private void validHandle(int handle) {
+    if (handle < 0 || handle >= size) {
+      throw new IllegalArgumentException("Invalid handle");
+    }
+    if (!evaluated) {
+      throw new IllegalStateException("Batch has not been evaluated");
+    }
+  }
+
+  /**
+   * Fills the given list with the legal moves of a position, in row order.
+   *
+   * @param handle the handle of the position
+   * @param moves  the list to fill
+   * @throws IllegalArgumentException if the handle is not in the batch
+   * @throws IllegalStateException    if the batch has not been evaluated since it changed
+   */
+  public void getValidMoves(int handle, MoveList moves) {
+    validHandle(handle);
+    moves.clear();
+    for (long rest = legal[handle]; rest != 0; rest &= rest - 1) {
+      moves.add(Long.numberOfTrailingZeros(rest));
+    }
+  }
+
+  /**
+   * Finds every legal move of a position with the number of pieces it flips.
+   *
+   * @param handle     the handle of the position
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of legal moves written to the buffers
+   * @throws IllegalArgumentException if the handle is not in the batch
+   * @throws IllegalStateException    if the batch has not been evaluated since it changed
+   */
+  public int getMoveFlipCounts(int handle, int[] moves, int[] flipCounts) {
+    validHandle(handle);
+    int base = handle * layout.topology().cellCount();
+    int count = 0;
+    for (long rest = legal[handle]; rest != 0; rest &= rest - 1) {
+      int cell = Long.numberOfTrailingZeros(rest);
+      moves[count] = cell;
+      flipCounts[count] = this.flipCounts[base + cell];
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of pieces a player has in a position.
+   *
+   * @param handle the handle of the position
+   * @param player the player
+   * @return the number of that player's pieces
+   * @throws IllegalArgumentException if the handle is not in the batch
+   * @throws IllegalStateException    if the batch has not been evaluated since it changed
+   */
+  public int getScore(int handle, Player player) {
+    validHandle(handle);
+    if (player == Player.X) {
+      return xScores[handle];
+    }
+    return player == Player.O ? oScores[handle] : 0;
+  }
+
+  /**
+   * Returns the player to move in a position.
+   *
+   * @param handle the handle of the position
+   * @return the current player of that position
+   * @throws IllegalArgumentException if the handle is not in the batch
+   */
+  public Player getCurrentPlayer(int handle) {
+    if (handle < 0 || handle >= size) {
+      throw new IllegalArgumentException("Invalid handle");
+    }
+    return xToMove[handle] ? Player.X : Player.O;
+  }
+
+  /**
+   * Returns the number of rows of every board in the batch.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return layout.topology().rows();
+  }
+
+  /**
+   * Returns the number of positions in the batch.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the most positions the batch holds.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return xPieces.length;
+  }
+}
@@ -0,0 +1,192 @@
+package cs3500.reversi.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes how the cells of a hexagonal board are packed into the bits of a long, along with
+ * the shift tables needed to move a whole set of cells one step in any of the six directions.
+ * Bit i holds cell i of the board's {@link HexTopology}. Boards of up to 9 rows (61 cells)
+ * fit in a single long.
+ * A layout only depends on the number of rows, so one instance is built per board size and
+ * shared by every game of that size.
+ *
+ * @field topology the cell numbering the bits follow
+ * @field fullMask a mask with a bit set for every cell of the board
+ * @field shiftAmounts per direction, the signed distinct index deltas of a one step move
+ * @field shiftMasks per direction, the source cells that move by the matching delta
+ */
+final class BitboardLayout {
+
+  /**
+   * The largest number of rows whose cells fit in a long.
+   */
+  static final int MAX_ROWS = 9;
+
+  private static final BitboardLayout[] LAYOUTS = new BitboardLayout[MAX_ROWS + 1];
+
+  private final HexTopology topology;
+
+  private final long fullMask;
+
+  private final int[][] shiftAmounts;
+
+  private final long[][] shiftMasks;
+
+  /**
+   * Builds the layout for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   */
+  private BitboardLayout(int rows) {
+    this.topology = HexTopology.of(rows);
+    int cellCount = topology.cellCount();
+    this.fullMask = cellCount == 64 ? -1L : (1L << cellCount) - 1;
+    this.shiftAmounts = new int[HexTopology.DIRECTIONS][];
+    this.shiftMasks = new long[HexTopology.DIRECTIONS][];
+    for (int d = 0; d < HexTopology.DIRECTIONS; d++) {
+      List<Integer> amounts = new ArrayList<>();
+      List<Long> masks = new ArrayList<>();
+      for (int bit = 0; bit < cellCount; bit++) {
+        int[] ray = topology.ray(bit, d);
+        if (ray.length == 0) {
+          continue;
+        }
+        int amount = ray[0] - bit;
+        int slot = amounts.indexOf(amount);
+        if (slot < 0) {
+          amounts.add(amount);
+          masks.add(0L);
+          slot = amounts.size() - 1;
+        }
+        masks.set(slot, masks.get(slot) | (1L << bit));
+      }
+      shiftAmounts[d] = new int[amounts.size()];
+      shiftMasks[d] = new long[masks.size()];
+      for (int i = 0; i < amounts.size(); i++) {
+        shiftAmounts[d][i] = amounts.get(i);
+        shiftMasks[d][i] = masks.get(i);
+      }
+    }
+  }
+
+  /**
+   * Returns the shared layout for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   * @return the layout for that board size
+   * @throws IllegalArgumentException if the number of rows is not a positive odd number or
+   *                                  the board does not fit in a long
+   */
+  static synchronized BitboardLayout of(int rows) {
+    if (rows < 1 || rows % 2 == 0) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    if (rows > MAX_ROWS) {
+      throw new IllegalArgumentException("Board too large for a bitboard");
+    }
+    if (LAYOUTS[rows] == null) {
+      LAYOUTS[rows] = new BitboardLayout(rows);
+    }
+    return LAYOUTS[rows];
+  }
+
+  /**
+   * Returns the cell numbering the bits of this layout follow.
+   *
+   * @return the topology of the board
+   */
+  HexTopology topology() {
+    return topology;
+  }
+
+  /**
+   * Returns a mask with every cell of the board set.
+   *
+   * @return the full board mask
+   */
+  long fullMask() {
+    return fullMask;
+  }
+
+  /**
+   * Moves every cell in the given set one step in the given direction, dropping the cells
+   * that would leave the board.
+   *
+   * @param cells the set of cells
+   * @param dir   one of the {@link HexTopology} directions
+   * @return the shifted set of cells
+   */
+  long shift(long cells, int dir) {
+    int[] amounts = shiftAmounts[dir];
+    long[] masks = shiftMasks[dir];
+    long result = 0;
+    for (int i = 0; i < amounts.length; i++) {
+      int amount = amounts[i];
+      long src = cells & masks[i];
+      result |= amount > 0 ? src << amount : src >>> -amount;
+    }
+    return result;
+  }
+
+  /**
+   * Computes every empty cell where the given player could place a piece.
+   * Runs a flood fill through the opponent's pieces in each direction at once for every
+   * piece the player owns.
+   *
+   * @param own the pieces of the player to move
+   * @param opp the pieces of the opponent
+   * @return the set of legal moves
+   */
+  long legalMoves(long own, long opp) {
+    long empty = ~(own | opp) & fullMask;
+    long moves = 0;
+    for (int d = 0; d < HexTopology.DIRECTIONS; d++) {
+      long run = shift(own, d) & opp;
+      long grown = run;
+      while (grown != 0) {
+        grown = shift(grown, d) & opp & ~run;
+        run |= grown;
+      }
+      moves |= shift(run, d) & empty;
+    }
+    return moves;
+  }
+
+  /**
+   * Computes the opponent pieces that would be flipped if the player placed a piece on the
+   * given bit. Does not check whether the bit itself is empty.
+   *
+   * @param bit the bit index of the placement
+   * @param own the pieces of the player to move
+   * @param opp the pieces of the opponent
+   * @return the set of pieces to flip, empty if the move is not legal
+   */
+  long flips(int bit, long own, long opp) {
+    long flipped = 0;
+    long start = 1L << bit;
+    for (int d = 0; d < HexTopology.DIRECTIONS; d++) {
+      flipped |= flipsInDirection(start, d, own, opp);
+    }
+    return flipped;
+  }
+
+  /**
+   * Computes the opponent pieces flipped in a single direction from the given placement.
+   *
+   * @param start a mask holding only the placed bit
+   * @param dir   the direction to walk
+   * @param own   the pieces of the player to move
+   * @param opp   the pieces of the opponent
+   * @return the set of pieces to flip in that direction
+   */
+  long flipsInDirection(long start, int dir, long own, long opp) {
+    long line = 0;
+    long next = shift(start, dir);
+    while ((next & opp) != 0) {
+      line |= next;
+      next = shift(next, dir);
+    }
+    return (next & own) != 0 ? line : 0;
+  }
+}
@@ -0,0 +1,1012 @@
+package cs3500.reversi.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents an implementation of HexVersi that stores the board as two bitmasks, one for the
+ * pieces of each player. Move generation, flipping and scoring are done with shifts and masks
+ * over the cell numbering of the board's {@link HexTopology}, so only boards of up to 9 rows
+ * are supported.
+ * Cells handed out by {@link #getBoard()}, {@link #findCell(int, int)} and
+ * {@link #collectFlips(int, int)} are built on demand, so changing their pieces does not
+ * change the game.
+ * A game is not safe for concurrent use: it has no lock and its listeners are kept in a
+ * plain list, so it must be played and read on one thread. A game read from other threads
+ * while moves are played should be a {@link BasicReversi} in concurrent mode.
+ *
+ * @field rows the number of rows in the board
+ * @field topology the cell numbering for this board size
+ * @field layout the shift tables for this board size
+ * @field gameStarted whether the game has started
+ * @field xPieces the cells holding an X piece
+ * @field oPieces the cells holding an O piece
+ * @field listeners the observers notified after each change
+ * @field currentPlayer the current player
+ * @field consecutivePasses the number of consecutive passes
+ * @field gameOver whether the game is over
+ * @field pieceKey the Zobrist key of the pieces on the board, without the side to move
+ * @field undoCells the placed cell of each move on the undo stack, or -1 for a pass
+ * @field undoPasses the number of consecutive passes before each move on the undo stack
+ * @field undoFlips the cells flipped by each move on the undo stack
+ * @field ply the number of moves on the undo stack
+ * @field engine the unchecked engine the checked methods delegate to
+ */
+public class BitboardReversi implements Reversi, Observer {
+  private final int rows;
+
+  private final HexTopology topology;
+
+  private final BitboardLayout layout;
+
+  private boolean gameStarted;
+
+  private long xPieces;
+
+  private long oPieces;
+
+  private List<Observer> listeners = new ArrayList<>();
+
+  private Player currentPlayer = Player.O;
+
+  private int consecutivePasses;
+
+  private boolean gameOver;
+
+  private long pieceKey;
+
+  private final int[] undoCells;
+
+  private final int[] undoPasses;
+
+  private final long[] undoFlips;
+
+  private int ply;
+
+  private final Engine engine = new Engine();
+
+  /**
+   * Constructs a game of Reversi with 5 rows.
+   */
+  public BitboardReversi() {
+    this(5);
+  }
+
+  /**
+   * Constructs a BitboardReversi object with the given number of rows.
+   *
+   * @param i the number of rows in the board
+   * @throws IllegalArgumentException if the desired row amount is less than 5, is not an odd
+   *                                  number, or is more than 9 so the board would not fit in a
+   *                                  long.
+   */
+  public BitboardReversi(int i) throws IllegalArgumentException {
+    if (i < 5 || i % 2 == 0) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    this.rows = i;
+    this.layout = BitboardLayout.of(i);
+    this.topology = layout.topology();
+    int plies = 2 * topology.cellCount() + 2;
+    this.undoCells = new int[plies];
+    this.undoPasses = new int[plies];
+    this.undoFlips = new long[plies];
+  }
+
+  /**
+   * Creates a new instance of BitboardReversi by copying the state of another one.
+   * Listeners and the undo stack are not copied.
+   *
+   * @param model The BitboardReversi model to be copied.
+   */
+  public BitboardReversi(BitboardReversi model) {
+    this.rows = model.rows;
+    this.topology = model.topology;
+    this.layout = model.layout;
+    this.gameStarted = model.gameStarted;
+    this.xPieces = model.xPieces;
+    this.oPieces = model.oPieces;
+    this.currentPlayer = model.currentPlayer;
+    this.consecutivePasses = model.consecutivePasses;
+    this.gameOver = model.gameOver;
+    this.pieceKey = model.pieceKey;
+    this.undoCells = new int[model.undoCells.length];
+    this.undoPasses = new int[model.undoPasses.length];
+    this.undoFlips = new long[model.undoFlips.length];
+  }
+
+  /**
+   * Starts our reversi game and sets gameStarted to true.
+   * Places the starting ring of alternating pieces around the middle cell.
+   *
+   * @throws IllegalStateException if the game has already started
+   */
+  @Override
+  public void startGame() throws IllegalStateException {
+    if (gameStarted) {
+      throw new IllegalStateException("Game already started");
+    }
+    xPieces = bit(0, -1) | bit(1, 0) | bit(-1, 1);
+    oPieces = bit(1, -1) | bit(0, 1) | bit(-1, 0);
+    pieceKey = 0;
+    for (int cell = 0; cell < topology.cellCount(); cell++) {
+      pieceKey ^= topology.pieceKey(cell, pieceAt(cell));
+    }
+    gameStarted = true;
+    consecutivePasses = 0;
+    gameOver = false;
+    ply = 0;
+    notice();
+  }
+
+  /**
+   * Helper that determines whether the given coordinates are on the board.
+   *
+   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
+   *                                  if the q coordinate is out of bounds for that desired row.
+   */
+  private void validInput(int q, int r) throws IllegalArgumentException {
+    int length = rows / 2;
+    if (r > length || r < -length) {
+      throw new IllegalArgumentException("Invalid R");
+    }
+    if (!topology.contains(q, r)) {
+      throw new IllegalArgumentException("Invalid Q");
+    }
+  }
+
+  /**
+   * Returns a mask holding only the cell at the given coordinates.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the single bit mask for that cell
+   */
+  private long bit(int q, int r) {
+    return 1L << topology.index(q, r);
+  }
+
+  /**
+   * Returns the pieces of the given player.
+   *
+   * @param p the player
+   * @return the mask of cells owned by that player
+   */
+  private long piecesOf(Player p) {
+    return p == Player.X ? xPieces : oPieces;
+  }
+
+  /**
+   * Returns the piece on the given bit, or null if it is empty.
+   *
+   * @param bit the bit index
+   * @return the piece on that cell
+   */
+  private Player pieceAt(int bit) {
+    long mask = 1L << bit;
+    if ((xPieces & mask) != 0) {
+      return Player.X;
+    }
+    if ((oPieces & mask) != 0) {
+      return Player.O;
+    }
+    return null;
+  }
+
+  /**
+   * Builds a detached cell for the given bit holding its current piece.
+   *
+   * @param bit the bit index
+   * @return a new cell mirroring that position
+   */
+  private HexCell cellAt(int bit) {
+    HexCell cell = new HexCell(topology.q(bit), topology.r(bit));
+    cell.setPiece(pieceAt(bit));
+    return cell;
+  }
+
+  /**
+   * Sets the piece of the desired cell to the current player and flips every opponent piece
+   * captured by the move.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalStateException    if the game is already over
+   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
+   *                                  if the q coordinate is out of bounds for that desired row.
+   * @throws IllegalStateException    if the move is not allowable (i.e. the move is not
+   *                                  logically possible) or a piece already exists in that
+   *                                  position.
+   */
+  @Override
+  public void movePiece(int q, int r) throws IllegalStateException, IllegalArgumentException {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    validInput(q, r);
+    engine.play(checkedMove(topology.index(q, r)));
+    this.notice();
+  }
+
+  /**
+   * Plays the current player's piece on the cell with the given number in row order.
+   *
+   * @param cell the number of the cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalStateException    if the game is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  @Override
+  public void movePiece(int cell) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    validIndex(cell);
+    engine.play(checkedMove(cell));
+    this.notice();
+  }
+
+  /**
+   * Determines whether neither player can move. The player to move is checked first, since
+   * usually they can and one flood fill settles it.
+   *
+   * @return whether the game can not go on
+   */
+  private boolean noMovesLeft() {
+    long own = piecesOf(currentPlayer);
+    long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+    return layout.legalMoves(own, opp) == 0 && layout.legalMoves(opp, own) == 0;
+  }
+
+  /**
+   * Toggles the placed cell and the flipped cells for the given mover, along with their
+   * Zobrist keys. Applying the same masks twice takes the move back.
+   *
+   * @param mover   the player who places the piece
+   * @param placed  a mask holding only the placed cell
+   * @param flipped the cells flipped by the move
+   */
+  private void applyFlips(Player mover, long placed, long flipped) {
+    pieceKey ^= topology.pieceKey(Long.numberOfTrailingZeros(placed), mover);
+    for (long rest = flipped; rest != 0; rest &= rest - 1) {
+      int cell = Long.numberOfTrailingZeros(rest);
+      pieceKey ^= topology.pieceKey(cell, Player.X) ^ topology.pieceKey(cell, Player.O);
+    }
+    if (mover == Player.X) {
+      xPieces ^= placed | flipped;
+      oPieces ^= flipped;
+    } else {
+      oPieces ^= placed | flipped;
+      xPieces ^= flipped;
+    }
+  }
+
+  /**
+   * Plays the current player's piece at the given coordinates without notifying listeners
+   * and returns a record that can take the move back.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return a record of the move
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  @Override
+  public MoveRecord makeMove(int q, int r) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    validInput(q, r);
+    engine.play(checkedMove(topology.index(q, r)));
+    return lastRecord();
+  }
+
+  /**
+   * Plays the current player's piece on the cell with the given number in row order without
+   * notifying listeners and returns a record that can take the move back.
+   *
+   * @param cell the number of the cell
+   * @return a record of the move
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  @Override
+  public MoveRecord makeMove(int cell) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    validIndex(cell);
+    engine.play(checkedMove(cell));
+    return lastRecord();
+  }
+
+  /**
+   * Checks that the current player may place a piece on the given bit.
+   *
+   * @param cell the bit index of the cell
+   * @return the cell
+   * @throws IllegalStateException if the move is not allowable or the cell is occupied
+   */
+  private int checkedMove(int cell) {
+    if (((xPieces | oPieces) & (1L << cell)) != 0) {
+      throw new IllegalStateException("Can't Put Piece on Another Piece");
+    }
+    if (!engine.isLegal(cell)) {
+      throw new IllegalStateException("Not a valid move");
+    }
+    return cell;
+  }
+
+  /**
+   * Passes the turn without notifying listeners and returns a record that can take the pass
+   * back.
+   *
+   * @return a record of the pass
+   * @throws IllegalStateException if the game has not started or is already over
+   */
+  @Override
+  public MoveRecord makePass() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    engine.pass();
+    return lastRecord();
+  }
+
+  /**
+   * Builds the record of the move on top of the undo stack.
+   *
+   * @return a record of the last move
+   */
+  private MoveRecord lastRecord() {
+    int top = ply - 1;
+    Player mover = currentPlayer == Player.X ? Player.O : Player.X;
+    return new MoveRecord(undoCells[top], Long.bitCount(undoFlips[top]), mover, ply);
+  }
+
+  /**
+   * Restores the state from before the given move by toggling the same cells again.
+   *
+   * @param record the record returned when the move was made
+   * @throws IllegalArgumentException if the record is not of the last move not yet undone
+   */
+  @Override
+  public void unmakeMove(MoveRecord record) {
+    if (record == null || record.depth != ply) {
+      throw new IllegalArgumentException("Not the last move");
+    }
+    engine.undo();
+  }
+
+  /**
+   * Determines whether the current player could place a piece at the given cell.
+   * Like {@link BasicReversi#isValidMoves(int, int)} this does not check that the cell is empty.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return valid move for given cell
+   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
+   *                                  if the q coordinate is out of bounds for that desired row.
+   */
+  @Override
+  public boolean isValidMoves(int q, int r) throws IllegalArgumentException {
+    validInput(q, r);
+    long own = piecesOf(currentPlayer);
+    long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+    return layout.flips(topology.index(q, r), own, opp) != 0;
+  }
+
+  /**
+   * Determines whether the current player could place a piece on the cell with the given
+   * number.
+   *
+   * @param cell the number of the cell in row order
+   * @return whether the move is valid
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  @Override
+  public boolean isValidMoves(int cell) {
+    validIndex(cell);
+    return engine.isLegal(cell);
+  }
+
+  /**
+   * Determines whether the given player could place a piece at the given coordinates.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return whether the move is valid for that player
+   * @throws IllegalArgumentException if the coordinates are not in bound or the player is null
+   */
+  @Override
+  public boolean isValidMove(int q, int r, Player player) {
+    validInput(q, r);
+    validPlayer(player);
+    long placed = bit(q, r);
+    if (((xPieces | oPieces) & placed) != 0) {
+      return false;
+    }
+    long own = piecesOf(player);
+    long opp = piecesOf(player == Player.X ? Player.O : Player.X);
+    return layout.flips(topology.index(q, r), own, opp) != 0;
+  }
+
+  /**
+   * Helper that checks a player was given.
+   *
+   * @param player the player
+   * @throws IllegalArgumentException if the player is null
+   */
+  private void validPlayer(Player player) {
+    if (player == null) {
+      throw new IllegalArgumentException("Invalid player");
+    }
+  }
+
+  /**
+   * Passes the move to the next player.
+   * If passMove is called consecutively it will end the game.
+   *
+   * @throws IllegalStateException if the game has not started
+   * @throws IllegalStateException if the game is already over
+   */
+  @Override
+  public void passMove() throws IllegalStateException {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    engine.pass();
+    this.notice();
+  }
+
+  /**
+   * Returns the game board for the current game, built from the bitmasks.
+   *
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public Map<Integer, HexCell[]> getBoard() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    Map<Integer, HexCell[]> board = new HashMap<>();
+    int length = rows / 2;
+    for (int r = -length; r <= length; r++) {
+      HexCell[] row = new HexCell[topology.rowLength(r)];
+      int first = topology.index(topology.minQ(r), r);
+      for (int i = 0; i < row.length; i++) {
+        row[i] = cellAt(first + i);
+      }
+      board.put(r + length, row);
+    }
+    return board;
+  }
+
+  /**
+   * Returns the number of cells on the board.
+   *
+   * @return the number of cells
+   */
+  @Override
+  public int getCellCount() {
+    return topology.cellCount();
+  }
+
+  /**
+   * Returns the cell with the given number in row order. The cell is built from the
+   * bitmasks and detached from the game.
+   *
+   * @param index the number of the cell
+   * @return the cell with that number
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public HexCell getCellAt(int index) {
+    validIndex(index);
+    return cellAt(index);
+  }
+
+  /**
+   * Returns the piece on the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the piece on that cell, or null if it is empty
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public Player getPieceAt(int index) {
+    validIndex(index);
+    return engine.pieceAt(index);
+  }
+
+  /**
+   * Returns the shared coordinate of the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the coordinate of that cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public AxialCoordinate getCoordAt(int index) {
+    validIndex(index);
+    return topology.coord(index);
+  }
+
+  /**
+   * Returns the number in row order of the cell at the given coordinates.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the number of that cell
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  @Override
+  public int getCellIndex(int q, int r) {
+    validInput(q, r);
+    return topology.index(q, r);
+  }
+
+  /**
+   * Helper that checks the game has started and the given cell number is on the board.
+   *
+   * @param index the number of the cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  private void validIndex(int index) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (index < 0 || index >= topology.cellCount()) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+  }
+
+  /**
+   * Returns the number of rows for the current game.
+   */
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Determines if the game is over: both players passed in a row, or after a move neither
+   * player had a legal move left. Moves keep the flag up to date, so this only reads it.
+   *
+   * @return whether the game is over
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public boolean isGameOver() throws IllegalStateException {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return gameOver;
+  }
+
+  /**
+   * Returns the number of passes in a row that led to the current position.
+   *
+   * @return the number of consecutive passes
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public int getConsecutivePasses() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return consecutivePasses;
+  }
+
+  /**
+   * Returns the piece of the current player.
+   *
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public Player getCurrentPlayer() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return currentPlayer;
+  }
+
+  /**
+   * Returns the score (amount of pieces belonging to the given player).
+   *
+   * @param p the player
+   * @return the score of the player
+   * @throws IllegalStateException if the game has not started
+   * @throws IllegalStateException if the game is already over
+   */
+  @Override
+  public int getScore(Player p) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    return engine.score(p);
+  }
+
+  /**
+   * Returns a list of valid moves for the current player, row by row from the top.
+   *
+   * @return a list of valid moves for the current player
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves() {
+    return getValidMoves(currentPlayer);
+  }
+
+  /**
+   * Returns a list of valid moves for the given player, row by row from the top.
+   *
+   * @param player the player to list moves for
+   * @return a list of valid moves for that player
+   * @throws IllegalArgumentException if the player is null
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves(Player player) {
+    validPlayer(player);
+    long own = piecesOf(player);
+    long opp = piecesOf(player == Player.X ? Player.O : Player.X);
+    long moves = layout.legalMoves(own, opp);
+    List<AxialCoordinate> validMoves = new ArrayList<>(Long.bitCount(moves));
+    while (moves != 0) {
+      int bit = Long.numberOfTrailingZeros(moves);
+      validMoves.add(topology.coord(bit));
+      moves &= moves - 1;
+    }
+    return validMoves;
+  }
+
+  /**
+   * Returns a detached copy of the cell at the given coordinate.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the hex cell at the given coordinates
+   * @throws IllegalArgumentException if the r coordinate is out of bounds for our current board or
+   *                                  if the q coordinate is out of bounds for that desired row.
+   */
+  @Override
+  public HexCell findCell(int q, int r) throws IllegalArgumentException {
+    validInput(q, r);
+    return cellAt(topology.index(q, r));
+  }
+
+  /**
+   * Determines whether the current player has a valid move. A single flood fill answers it
+   * for the whole board at once.
+   *
+   * @return whether a valid move exists
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public boolean hasValidMove() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    long own = piecesOf(currentPlayer);
+    long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+    return layout.legalMoves(own, opp) != 0;
+  }
+
+  /**
+   * Returns an iterator that pops the current player's moves off the flood fill mask one
+   * at a time.
+   *
+   * @return a lazy iterator over the valid moves
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public Iterator<AxialCoordinate> validMoveIterator() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    long own = piecesOf(currentPlayer);
+    long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+    long legal = layout.legalMoves(own, opp);
+    return new Iterator<AxialCoordinate>() {
+      private long rest = legal;
+
+      @Override
+      public boolean hasNext() {
+        return rest != 0;
+      }
+
+      @Override
+      public AxialCoordinate next() {
+        if (rest == 0) {
+          throw new NoSuchElementException();
+        }
+        int bit = Long.numberOfTrailingZeros(rest);
+        rest &= rest - 1;
+        return topology.coord(bit);
+      }
+    };
+  }
+
+  /**
+   * Fills the given list with the valid moves of the current player, popped from the flood
+   * fill mask in row order.
+   *
+   * @param moves the list to fill
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public void getValidMoves(MoveList moves) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    engine.legalMoves(moves);
+  }
+
+  /**
+   * Finds every legal move of the current player with the number of pieces it flips.
+   * The moves come from one flood fill and each count is the size of the move's flip mask.
+   *
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of legal moves written to the buffers
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public int getMoveFlipCounts(int[] moves, int[] flipCounts) {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return engine.moveFlipCounts(moves, flipCounts);
+  }
+
+  /**
+   * Adds a feature listener to the model.
+   *
+   * @param features the feature listener
+   */
+  @Override
+  public void addFeatureListener(Observer features) {
+    this.listeners.add(features);
+  }
+
+  /**
+   * Notifies all the feature listeners of a change in the model.
+   */
+  @Override
+  public void notice() {
+    for (Observer features : this.listeners) {
+      features.notice();
+    }
+  }
+
+  /**
+   * Collects all the pieces that would be flipped for a given cell, direction by direction
+   * in the same order as {@link BasicReversi#collectFlips(int, int)}.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the list of pieces to be flipped
+   * @throws IllegalArgumentException if the coordinates are not in bound
+   */
+  @Override
+  public List<HexCell> collectFlips(int q, int r) throws IllegalArgumentException {
+    return collectFlips(q, r, currentPlayer);
+  }
+
+  /**
+   * Collects all the pieces the given player would flip by placing a piece at the given
+   * cell, in the same order as {@link #collectFlips(int, int)}.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return the list of pieces to be flipped
+   * @throws IllegalArgumentException if the coordinates are not in bound or the player is null
+   */
+  @Override
+  public List<HexCell> collectFlips(int q, int r, Player player) {
+    validInput(q, r);
+    validPlayer(player);
+    long own = piecesOf(player);
+    long opp = piecesOf(player == Player.X ? Player.O : Player.X);
+    List<HexCell> list = new ArrayList<>();
+    long start = bit(q, r);
+    for (int d = 0; d < HexTopology.DIRECTIONS; d++) {
+      long line = layout.flipsInDirection(start, d, own, opp);
+      long next = layout.shift(start, d);
+      while ((next & line) != 0) {
+        list.add(cellAt(Long.numberOfTrailingZeros(next)));
+        next = layout.shift(next, d);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns the Zobrist key of the current position. The piece part is kept up to date by
+   * every move, and the side to move is folded in on read.
+   *
+   * @return the key of the current position
+   * @throws IllegalStateException if the game has not started
+   */
+  @Override
+  public long getPositionKey() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return engine.positionKey();
+  }
+
+  /**
+   * Returns the unchecked engine behind this game, for trusted callers such as searches and
+   * {@link Perft} that have already proven their moves legal. Changes made through the engine
+   * are changes to this game.
+   *
+   * @return the engine of this game
+   * @throws IllegalStateException if the game has not started
+   */
+  public ReversiEngine engine() {
+    if (!gameStarted) {
+      throw new IllegalStateException("Game has not started yet");
+    }
+    return engine;
+  }
+
+  /**
+   * The unchecked engine of this game. It works on the bitboards directly, with a flood fill
+   * for the legal moves and a flip mask per move.
+   */
+  private final class Engine implements ReversiEngine {
+
+    @Override
+    public int cellCount() {
+      return topology.cellCount();
+    }
+
+    @Override
+    public Player pieceAt(int cell) {
+      assert cell >= 0 && cell < topology.cellCount() : "Invalid index";
+      return BitboardReversi.this.pieceAt(cell);
+    }
+
+    @Override
+    public Player currentPlayer() {
+      return currentPlayer;
+    }
+
+    @Override
+    public boolean isOver() {
+      return gameOver;
+    }
+
+    @Override
+    public int score(Player player) {
+      return Long.bitCount(piecesOf(player));
+    }
+
+    @Override
+    public long positionKey() {
+      return currentPlayer == Player.X ? pieceKey ^ topology.sideKey() : pieceKey;
+    }
+
+    @Override
+    public boolean isLegal(int cell) {
+      assert cell >= 0 && cell < topology.cellCount() : "Invalid index";
+      if (((xPieces | oPieces) & (1L << cell)) != 0) {
+        return false;
+      }
+      long own = piecesOf(currentPlayer);
+      long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+      return layout.flips(cell, own, opp) != 0;
+    }
+
+    @Override
+    public void legalMoves(MoveList moves) {
+      moves.clear();
+      long own = piecesOf(currentPlayer);
+      long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+      for (long legal = layout.legalMoves(own, opp); legal != 0; legal &= legal - 1) {
+        moves.add(Long.numberOfTrailingZeros(legal));
+      }
+    }
+
+    @Override
+    public int moveFlipCounts(int[] moves, int[] flipCounts) {
+      long own = piecesOf(currentPlayer);
+      long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+      long legal = layout.legalMoves(own, opp);
+      int count = 0;
+      while (legal != 0) {
+        int bit = Long.numberOfTrailingZeros(legal);
+        moves[count] = bit;
+        flipCounts[count] = Long.bitCount(layout.flips(bit, own, opp));
+        count++;
+        legal &= legal - 1;
+      }
+      return count;
+    }
+
+    @Override
+    public void play(int cell) {
+      assert gameStarted && !gameOver : "Game is over";
+      assert isLegal(cell) : "Not a valid move";
+      long own = piecesOf(currentPlayer);
+      long opp = piecesOf(currentPlayer == Player.X ? Player.O : Player.X);
+      long flipped = layout.flips(cell, own, opp);
+      undoCells[ply] = cell;
+      undoPasses[ply] = consecutivePasses;
+      undoFlips[ply] = flipped;
+      ply++;
+      applyFlips(currentPlayer, 1L << cell, flipped);
+      currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
+      consecutivePasses = 0;
+      gameOver = noMovesLeft();
+    }
+
+    @Override
+    public void pass() {
+      assert gameStarted && !gameOver : "Game is over";
+      undoCells[ply] = -1;
+      undoPasses[ply] = consecutivePasses;
+      undoFlips[ply] = 0;
+      ply++;
+      currentPlayer = currentPlayer == Player.X ? Player.O : Player.X;
+      consecutivePasses++;
+      if (consecutivePasses == 2) {
+        gameOver = true;
+      }
+    }
+
+    @Override
+    public void undo() {
+      assert ply > 0 : "Nothing to undo";
+      ply--;
+      Player mover = currentPlayer == Player.X ? Player.O : Player.X;
+      if (undoCells[ply] >= 0) {
+        applyFlips(mover, 1L << undoCells[ply], undoFlips[ply]);
+      }
+      currentPlayer = mover;
+      consecutivePasses = undoPasses[ply];
+      gameOver = false;
+    }
+
+    @Override
+    public int depth() {
+      return ply;
+    }
+  }
+}
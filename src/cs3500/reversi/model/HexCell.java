@@ -15,23 +15,24 @@ public class HexCell implements Cell {
   private Player piece;
 
   /**
-   * Constructs a HexCell with specified axial coordinates.
+   * Constructs a HexCell with specified axial coordinates, using the shared coordinate.
    *
    * @param q The q coordinate in an axial coordinate system.
    * @param r The r coordinate in an axial coordinate system.
    */
   public HexCell(int q, int r) {
-    this.coord = new AxialCoordinate(q, r);
+    this.coord = AxialCoordinate.of(q, r);
     this.piece = null;
   }
 
   /**
    * Copy constructor to create a new HexCell by copying another HexCell's state.
+   * Coordinates are immutable, so the copy shares the original's coordinate.
    *
    * @param original The original HexCell to be copied.
    */
   public HexCell(HexCell original) {
-    this.coord = new AxialCoordinate(original.coord);
+    this.coord = original.coord;
     this.piece = original.piece; // Assuming Player has a copy constructor
   }
 
@@ -0,0 +1,274 @@
+package cs3500.reversi.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes the twelve symmetries of a hexagonal board of a given size: the six rotations
+ * about the center cell, each with and without a reflection. Positions that are rotations or
+ * mirror images of each other play out the same way, so a cache, opening book or game
+ * database keyed by {@link Canonical#getKey()} stores each of them once.
+ * Symmetries 0 to 5 rotate the board by that many sixth turns, mapping (q, r, s) to
+ * (-r, -s, -q) per turn. Symmetries 6 to 11 first reflect the board by swapping r and s, then
+ * rotate it by the index minus 6. Symmetry 0 leaves the board unchanged.
+ * The cell permutation of every symmetry is computed once per board size and shared.
+ *
+ * @field topology the cell numbering of this board size
+ * @field permutations for each symmetry, the cell each cell is moved to
+ */
+public final class HexSymmetry {
+
+  /**
+   * The number of symmetries of a hexagonal board.
+   */
+  public static final int COUNT = 12;
+
+  private static final Map<Integer, HexSymmetry> SYMMETRIES = new HashMap<>();
+
+  private final HexTopology topology;
+
+  private final int[][] permutations;
+
+  /**
+   * Builds the permutation tables for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   */
+  private HexSymmetry(int rows) {
+    this.topology = HexTopology.of(rows);
+    this.permutations = new int[COUNT][topology.cellCount()];
+    for (int cell = 0; cell < topology.cellCount(); cell++) {
+      int q = topology.q(cell);
+      int r = topology.r(cell);
+      for (int sym = 0; sym < COUNT; sym++) {
+        int tq = q;
+        int tr = sym < 6 ? r : -q - r;
+        for (int turn = 0; turn < sym % 6; turn++) {
+          int ts = -tq - tr;
+          tq = -tr;
+          tr = -ts;
+        }
+        permutations[sym][cell] = topology.index(tq, tr);
+      }
+    }
+  }
+
+  /**
+   * Returns the shared symmetry tables for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   * @return the symmetries of that board size
+   * @throws IllegalArgumentException if the number of rows is less than 5 or even
+   */
+  public static HexSymmetry of(int rows) {
+    if (rows < 5 || rows % 2 == 0) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    synchronized (SYMMETRIES) {
+      return SYMMETRIES.computeIfAbsent(rows, HexSymmetry::new);
+    }
+  }
+
+  /**
+   * Returns the symmetry that undoes the given one. A rotation is undone by rotating the
+   * rest of the way around, and every reflection undoes itself.
+   *
+   * @param symmetry the symmetry index
+   * @return the index of the inverse symmetry
+   * @throws IllegalArgumentException if the index is not between 0 and 11
+   */
+  public static int inverse(int symmetry) {
+    validSymmetry(symmetry);
+    return symmetry < 6 ? (6 - symmetry) % 6 : symmetry;
+  }
+
+  /**
+   * Helper that checks a symmetry index is in range.
+   *
+   * @param symmetry the symmetry index
+   * @throws IllegalArgumentException if the index is not between 0 and 11
+   */
+  private static void validSymmetry(int symmetry) {
+    if (symmetry < 0 || symmetry >= COUNT) {
+      throw new IllegalArgumentException("Invalid symmetry");
+    }
+  }
+
+  /**
+   * Returns the number of rows of the board these symmetries act on.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return topology.rows();
+  }
+
+  /**
+   * Returns the cell the given cell is moved to by a symmetry.
+   *
+   * @param symmetry the symmetry index
+   * @param cell     the number of the cell in row order
+   * @return the number of the cell it is moved to
+   * @throws IllegalArgumentException if the symmetry or the cell is out of range
+   */
+  public int transform(int symmetry, int cell) {
+    validSymmetry(symmetry);
+    if (cell < 0 || cell >= topology.cellCount()) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+    return permutations[symmetry][cell];
+  }
+
+  /**
+   * Returns the coordinate the given coordinate is moved to by a symmetry.
+   *
+   * @param symmetry the symmetry index
+   * @param coord    the coordinate of a cell on the board
+   * @return the coordinate it is moved to
+   * @throws IllegalArgumentException if the symmetry is out of range or the coordinate is not
+   *                                  on the board
+   */
+  public AxialCoordinate transform(int symmetry, AxialCoordinate coord) {
+    if (!topology.contains(coord.getQ(), coord.getR())) {
+      throw new IllegalArgumentException("Invalid coordinates");
+    }
+    return topology.coord(transform(symmetry, topology.index(coord.getQ(), coord.getR())));
+  }
+
+  /**
+   * Finds the canonical form of a game: of the twelve images of its board, the one with the
+   * smallest Zobrist key. Images with equal boards give equal keys, so every game in the same
+   * class ends up with the same canonical position and key. When several symmetries reach
+   * that board, the smallest index is used.
+   *
+   * @param model a started game of this board size
+   * @return the canonical form and the symmetry that reaches it
+   * @throws IllegalArgumentException if the game has a different number of rows
+   * @throws IllegalStateException    if the game has not started
+   */
+  public Canonical canonicalize(ReadOnlyReversi model) {
+    if (model.getRows() != topology.rows()) {
+      throw new IllegalArgumentException("Invalid size");
+    }
+    ReversiPosition position = ReversiPosition.of(model);
+    int cellCount = topology.cellCount();
+    long[] keys = new long[COUNT];
+    for (int cell = 0; cell < cellCount; cell++) {
+      Player piece = position.getPieceAt(cell);
+      if (piece == null) {
+        continue;
+      }
+      for (int sym = 0; sym < COUNT; sym++) {
+        keys[sym] ^= topology.pieceKey(permutations[sym][cell], piece);
+      }
+    }
+    int best = 0;
+    for (int sym = 1; sym < COUNT; sym++) {
+      if (keys[sym] < keys[best]) {
+        best = sym;
+      }
+    }
+    ReversiPosition canonical = position;
+    if (best != 0) {
+      Player[] pieces = new Player[cellCount];
+      for (int cell = 0; cell < cellCount; cell++) {
+        pieces[permutations[best][cell]] = position.getPieceAt(cell);
+      }
+      canonical = ReversiPosition.fromPieces(topology.rows(), pieces,
+              position.getCurrentPlayer(), position.getConsecutivePasses(),
+              position.isGameOver());
+    }
+    return new Canonical(this, best, canonical);
+  }
+
+  /**
+   * Represents the canonical form of a game, with the symmetry that carries the game's board
+   * onto it. Moves found on the canonical board are carried back with
+   * {@link #fromCanonical(int)}.
+   *
+   * @field symmetries the symmetry tables of the board size
+   * @field symmetry the index of the symmetry from the game to the canonical board
+   * @field position the canonical position
+   */
+  public static final class Canonical {
+    private final HexSymmetry symmetries;
+
+    private final int symmetry;
+
+    private final ReversiPosition position;
+
+    /**
+     * Constructs the canonical form of a game.
+     *
+     * @param symmetries the symmetry tables of the board size
+     * @param symmetry   the symmetry from the game to the canonical board
+     * @param position   the canonical position
+     */
+    private Canonical(HexSymmetry symmetries, int symmetry, ReversiPosition position) {
+      this.symmetries = symmetries;
+      this.symmetry = symmetry;
+      this.position = position;
+    }
+
+    /**
+     * Returns the index of the symmetry that carries the game's board onto the canonical one.
+     *
+     * @return the symmetry index
+     */
+    public int getSymmetry() {
+      return symmetry;
+    }
+
+    /**
+     * Returns the canonical position.
+     *
+     * @return the position
+     */
+    public ReversiPosition getPosition() {
+      return position;
+    }
+
+    /**
+     * Returns the Zobrist key of the canonical position, the same for every game in its
+     * class.
+     *
+     * @return the canonical key
+     */
+    public long getKey() {
+      return position.getPositionKey();
+    }
+
+    /**
+     * Carries a move on the game's board to the canonical board.
+     *
+     * @param cell the number of the cell in row order on the game's board
+     * @return the number of the matching cell on the canonical board
+     * @throws IllegalArgumentException if the cell is out of range
+     */
+    public int toCanonical(int cell) {
+      return symmetries.transform(symmetry, cell);
+    }
+
+    /**
+     * Carries a move on the canonical board back to the game's board.
+     *
+     * @param cell the number of the cell in row order on the canonical board
+     * @return the number of the matching cell on the game's board
+     * @throws IllegalArgumentException if the cell is out of range
+     */
+    public int fromCanonical(int cell) {
+      return symmetries.transform(inverse(symmetry), cell);
+    }
+
+    /**
+     * Carries a move on the canonical board back to the game's board.
+     *
+     * @param coord the coordinate of the cell on the canonical board
+     * @return the coordinate of the matching cell on the game's board
+     * @throws IllegalArgumentException if the coordinate is not on the board
+     */
+    public AxialCoordinate fromCanonical(AxialCoordinate coord) {
+      return symmetries.transform(inverse(symmetry), coord);
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package cs3500.reversi.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes the shape of a hexagonal board of a given size: how its cells are numbered and
+ * which cells lie along each of the six rays leaving every cell.
+ * Cells are numbered row by row from the top row down, left to right inside a row, which is
+ * the order the rows are laid out in {@link BasicReversi}.
+ * A topology only depends on the number of rows, so it is built once per board size and
+ * shared by every game of that size. The ray tables let the models walk a direction until
+ * the board edge without searching for cells or catching exceptions, and the Zobrist keys
+ * give every position of this size a stable 64-bit identity.
+ *
+ * @field rows the number of rows in the board
+ * @field half the distance from the center row to the top or bottom row
+ * @field cellCount the number of cells on the board
+ * @field rowOffsets the index of the first cell in each row
+ * @field qs the q coordinate of each cell
+ * @field rs the r coordinate of each cell
+ * @field coords the shared coordinate of each cell
+ * @field rays for each cell and direction, the cells along that ray ordered outwards
+ * @field neighbors for each cell, the cells next to it, at most one per direction
+ * @field pieceKeys the Zobrist key of each cell holding an X, then holding an O
+ * @field sideKey the Zobrist key added when X is to move
+ */
+final class HexTopology {
+
+  /**
+   * Direction towards smaller q in the same row.
+   */
+  static final int BACKWARDS = 0;
+
+  /**
+   * Direction towards larger q in the same row.
+   */
+  static final int FORWARD = 1;
+
+  /**
+   * Direction towards the row above, keeping q.
+   */
+  static final int Q_UP = 2;
+
+  /**
+   * Direction towards the row below, keeping q.
+   */
+  static final int Q_DOWN = 3;
+
+  /**
+   * Direction towards the row above, keeping s.
+   */
+  static final int S_UP = 4;
+
+  /**
+   * Direction towards the row below, keeping s.
+   */
+  static final int S_DOWN = 5;
+
+  /**
+   * The number of directions out of a cell.
+   */
+  static final int DIRECTIONS = 6;
+
+  /**
+   * The axial q step of each direction.
+   */
+  static final int[] DQ = {-1, 1, 0, 0, 1, -1};
+
+  /**
+   * The axial r step of each direction.
+   */
+  static final int[] DR = {0, 0, -1, 1, -1, 1};
+
+  /**
+   * The seed of the Zobrist keys. It is fixed so keys stay the same from run to run.
+   */
+  private static final long ZOBRIST_SEED = 0x3500_2EE5_1A4D_C0DEL;
+
+  private static final Map<Integer, HexTopology> TOPOLOGIES = new HashMap<>();
+
+  private final int rows;
+
+  private final int half;
+
+  private final int cellCount;
+
+  private final int[] rowOffsets;
+
+  private final int[] qs;
+
+  private final int[] rs;
+
+  private final AxialCoordinate[] coords;
+
+  private final int[][][] rays;
+
+  private final int[][] neighbors;
+
+  private final long[] pieceKeys;
+
+  private final long sideKey;
+
+  /**
+   * Builds the topology for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   */
+  private HexTopology(int rows) {
+    this.rows = rows;
+    this.half = rows / 2;
+    this.rowOffsets = new int[rows + 1];
+    for (int i = 0; i < rows; i++) {
+      rowOffsets[i + 1] = rowOffsets[i] + rowLength(i - half);
+    }
+    this.cellCount = rowOffsets[rows];
+    this.qs = new int[cellCount];
+    this.rs = new int[cellCount];
+    this.coords = new AxialCoordinate[cellCount];
+    AxialCoordinate.share(half);
+    for (int r = -half; r <= half; r++) {
+      for (int q = minQ(r); q <= maxQ(r); q++) {
+        int cell = index(q, r);
+        qs[cell] = q;
+        rs[cell] = r;
+        coords[cell] = AxialCoordinate.of(q, r);
+      }
+    }
+    this.rays = new int[cellCount][DIRECTIONS][];
+    for (int cell = 0; cell < cellCount; cell++) {
+      for (int d = 0; d < DIRECTIONS; d++) {
+        int length = 0;
+        while (contains(qs[cell] + DQ[d] * (length + 1), rs[cell] + DR[d] * (length + 1))) {
+          length++;
+        }
+        int[] ray = new int[length];
+        for (int step = 0; step < length; step++) {
+          ray[step] = index(qs[cell] + DQ[d] * (step + 1), rs[cell] + DR[d] * (step + 1));
+        }
+        rays[cell][d] = ray;
+      }
+    }
+    this.neighbors = new int[cellCount][];
+    for (int cell = 0; cell < cellCount; cell++) {
+      int count = 0;
+      for (int d = 0; d < DIRECTIONS; d++) {
+        if (rays[cell][d].length > 0) {
+          count++;
+        }
+      }
+      neighbors[cell] = new int[count];
+      count = 0;
+      for (int d = 0; d < DIRECTIONS; d++) {
+        if (rays[cell][d].length > 0) {
+          neighbors[cell][count++] = rays[cell][d][0];
+        }
+      }
+    }
+    long state = ZOBRIST_SEED + rows;
+    this.pieceKeys = new long[cellCount * 2];
+    for (int i = 0; i < pieceKeys.length; i++) {
+      state += 0x9E37_79B9_7F4A_7C15L;
+      pieceKeys[i] = mix(state);
+    }
+    state += 0x9E37_79B9_7F4A_7C15L;
+    this.sideKey = mix(state);
+  }
+
+  /**
+   * Scrambles a counter into a well distributed 64-bit value (the SplitMix64 finalizer).
+   *
+   * @param z the value to scramble
+   * @return the scrambled value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns the shared topology for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   * @return the topology for that board size
+   */
+  static HexTopology of(int rows) {
+    synchronized (TOPOLOGIES) {
+      return TOPOLOGIES.computeIfAbsent(rows, HexTopology::new);
+    }
+  }
+
+  /**
+   * Returns the number of rows in the board.
+   *
+   * @return the number of rows
+   */
+  int rows() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of cells on the board.
+   *
+   * @return the number of cells
+   */
+  int cellCount() {
+    return cellCount;
+  }
+
+  /**
+   * Returns the smallest q coordinate in the row with the given r coordinate.
+   *
+   * @param r the r coordinate
+   * @return the smallest q in that row
+   */
+  int minQ(int r) {
+    return Math.max(-half, -half - r);
+  }
+
+  /**
+   * Returns the largest q coordinate in the row with the given r coordinate.
+   *
+   * @param r the r coordinate
+   * @return the largest q in that row
+   */
+  int maxQ(int r) {
+    return Math.min(half, half - r);
+  }
+
+  /**
+   * Returns the number of cells in the row with the given r coordinate.
+   *
+   * @param r the r coordinate
+   * @return the length of that row
+   */
+  int rowLength(int r) {
+    return maxQ(r) - minQ(r) + 1;
+  }
+
+  /**
+   * Determines whether the given coordinates are on the board.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return whether the cell exists
+   */
+  boolean contains(int q, int r) {
+    return r >= -half && r <= half && q >= minQ(r) && q <= maxQ(r);
+  }
+
+  /**
+   * Returns the index of the given coordinates, which must be on the board.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the index of that cell
+   */
+  int index(int q, int r) {
+    return rowOffsets[r + half] + q - minQ(r);
+  }
+
+  /**
+   * Returns the q coordinate of the given cell.
+   *
+   * @param cell the cell index
+   * @return the q coordinate
+   */
+  int q(int cell) {
+    return qs[cell];
+  }
+
+  /**
+   * Returns the r coordinate of the given cell.
+   *
+   * @param cell the cell index
+   * @return the r coordinate
+   */
+  int r(int cell) {
+    return rs[cell];
+  }
+
+  /**
+   * Returns the shared coordinate of the given cell.
+   *
+   * @param cell the cell index
+   * @return the coordinate of that cell
+   */
+  AxialCoordinate coord(int cell) {
+    return coords[cell];
+  }
+
+  /**
+   * Returns the row of the given cell, counted from the top row.
+   *
+   * @param cell the cell index
+   * @return the row of that cell
+   */
+  int row(int cell) {
+    return rs[cell] + half;
+  }
+
+  /**
+   * Returns the position of the given cell inside its row.
+   *
+   * @param cell the cell index
+   * @return the column of that cell
+   */
+  int column(int cell) {
+    return cell - rowOffsets[rs[cell] + half];
+  }
+
+  /**
+   * Returns the cells along the ray leaving the given cell in the given direction, nearest
+   * first and ending at the board edge. The returned array is shared and must not be changed.
+   *
+   * @param cell the cell index
+   * @param dir  the direction
+   * @return the cells along that ray
+   */
+  int[] ray(int cell, int dir) {
+    return rays[cell][dir];
+  }
+
+  /**
+   * Returns the cells next to the given cell. The returned array is shared and must not be
+   * changed.
+   *
+   * @param cell the cell index
+   * @return the adjacent cells, from three on a corner to six inside the board
+   */
+  int[] neighbors(int cell) {
+    return neighbors[cell];
+  }
+
+  /**
+   * Returns the Zobrist key of the given piece on the given cell.
+   *
+   * @param cell  the cell index
+   * @param piece the piece, or null for an empty cell
+   * @return the key to XOR into a position key, 0 for an empty cell
+   */
+  long pieceKey(int cell, Player piece) {
+    if (piece == null) {
+      return 0;
+    }
+    return pieceKeys[piece == Player.X ? cell : cellCount + cell];
+  }
+
+  /**
+   * Returns the Zobrist key XORed into a position key when X is the player to move.
+   *
+   * @return the side to move key
+   */
+  long sideKey() {
+    return sideKey;
+  }
+}
@@ -0,0 +1,242 @@
+package cs3500.reversi.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Looks up flips by line pattern instead of walking rays. Every cell of a hexagonal board
+ * lies on three lines: its row (constant r), its constant q line and its constant s line.
+ * The contents of a line are kept as a base-3 pattern seen by one player, with a digit per
+ * cell that is 0 when empty, 1 for the player's own piece and 2 for the opponent's. For
+ * every pattern and every placement on the line, a table holds how many pieces the placement
+ * flips on each side, so finding the flips of a move costs three lookups.
+ * The pattern tables only depend on the length of a line, so they are built when the first
+ * board that needs them is set up and shared by every board size. They grow as 3 to the
+ * length of the line, so lines longer than {@link #MAX_LENGTH} have no table and are walked
+ * instead; {@link #flips} reports them as uncovered.
+ * The line of each cell is computed once per board size and shared like a
+ * {@link HexTopology}.
+ *
+ * @field tables the pattern table for each line length on this board, by length
+ * @field lineLengths the number of cells on each line
+ * @field cellLines for each cell and axis, the line the cell lies on
+ * @field cellWeights for each cell and axis, the value of the cell's digit in the pattern
+ * @field cellPositions for each cell and axis, the position of the cell on its line
+ */
+final class LineFlipTable {
+
+  /**
+   * The number of lines through every cell.
+   */
+  static final int AXES = 3;
+
+  /**
+   * The longest line with a pattern table.
+   */
+  static final int MAX_LENGTH = 11;
+
+  /**
+   * The value {@link #flips} returns for a line without a pattern table.
+   */
+  static final int UNCOVERED = -1;
+
+  private static final Map<Integer, LineFlipTable> TABLES = new HashMap<>();
+
+  private static final byte[][] PATTERNS = new byte[MAX_LENGTH + 1][];
+
+  private final byte[][] tables;
+
+  private final int[] lineLengths;
+
+  private final int[] cellLines;
+
+  private final int[] cellWeights;
+
+  private final int[] cellPositions;
+
+  /**
+   * Works out the lines of a board with the given number of rows. Lines are numbered by axis,
+   * then by their constant coordinate, and cells on a line are ordered by increasing q on a
+   * row and by increasing r on the other two axes.
+   *
+   * @param rows the number of rows in the board
+   */
+  private LineFlipTable(int rows) {
+    HexTopology topology = HexTopology.of(rows);
+    int half = rows / 2;
+    this.lineLengths = new int[AXES * rows];
+    for (int line = 0; line < lineLengths.length; line++) {
+      lineLengths[line] = rows - Math.abs(line % rows - half);
+    }
+    this.tables = new byte[MAX_LENGTH + 1][];
+    for (int length = half + 1; length <= Math.min(rows, MAX_LENGTH); length++) {
+      tables[length] = patterns(length);
+    }
+    int cellCount = topology.cellCount();
+    this.cellLines = new int[cellCount * AXES];
+    this.cellWeights = new int[cellCount * AXES];
+    this.cellPositions = new int[cellCount * AXES];
+    for (int cell = 0; cell < cellCount; cell++) {
+      int q = topology.q(cell);
+      int r = topology.r(cell);
+      int s = -q - r;
+      setLine(cell, 0, r + half, q - Math.max(-half, -half - r));
+      setLine(cell, 1, rows + q + half, r - Math.max(-half, -half - q));
+      setLine(cell, 2, 2 * rows + s + half, r - Math.max(-half, -half - s));
+    }
+  }
+
+  /**
+   * Records the line a cell lies on along one axis and its position there.
+   *
+   * @param cell     the cell index
+   * @param axis     the axis of the line
+   * @param line     the line number
+   * @param position the position of the cell on the line
+   */
+  private void setLine(int cell, int axis, int line, int position) {
+    int slot = cell * AXES + axis;
+    cellLines[slot] = line;
+    cellPositions[slot] = position;
+    int weight = 1;
+    for (int i = 0; i < position && lineLengths[line] <= MAX_LENGTH; i++) {
+      weight *= 3;
+    }
+    cellWeights[slot] = weight;
+  }
+
+  /**
+   * Returns the shared line tables for a board with the given number of rows.
+   *
+   * @param rows the number of rows in the board
+   * @return the line tables for that board size
+   */
+  static LineFlipTable of(int rows) {
+    synchronized (TABLES) {
+      return TABLES.computeIfAbsent(rows, LineFlipTable::new);
+    }
+  }
+
+  /**
+   * Returns the shared pattern table for lines of the given length, building it on first use.
+   * Entry pattern * length + position holds the flips toward lower positions in its low four
+   * bits and the flips toward higher positions in the next four. The digit at the placement
+   * itself is ignored.
+   *
+   * @param length the length of the line
+   * @return the pattern table
+   */
+  private static byte[] patterns(int length) {
+    synchronized (PATTERNS) {
+      byte[] table = PATTERNS[length];
+      if (table == null) {
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+          count *= 3;
+        }
+        table = new byte[count * length];
+        int[] digits = new int[length];
+        for (int pattern = 0; pattern < count; pattern++) {
+          for (int pos = 0; pos < length; pos++) {
+            int low = run(digits, pos, -1);
+            int high = run(digits, pos, 1);
+            table[pattern * length + pos] = (byte) (low | high << 4);
+          }
+          for (int i = 0; i < length && ++digits[i] == 3; i++) {
+            digits[i] = 0;
+          }
+        }
+        PATTERNS[length] = table;
+      }
+      return table;
+    }
+  }
+
+  /**
+   * Counts the opposing pieces next to a placement in one direction that end at the player's
+   * own piece.
+   *
+   * @param digits the pattern digits of the line
+   * @param pos    the position of the placement
+   * @param step   -1 toward lower positions, 1 toward higher ones
+   * @return the number of pieces flipped in that direction
+   */
+  private static int run(int[] digits, int pos, int step) {
+    int run = 0;
+    for (int i = pos + step; i >= 0 && i < digits.length; i += step) {
+      if (digits[i] == 2) {
+        run++;
+      } else {
+        return digits[i] == 1 ? run : 0;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the number of lines on the board.
+   *
+   * @return the line count
+   */
+  int lineCount() {
+    return lineLengths.length;
+  }
+
+  /**
+   * Updates the patterns of the three lines through a cell after its piece changed. Lines
+   * without a pattern table are left alone.
+   *
+   * @param xPatterns the patterns seen by X, by line
+   * @param oPatterns the patterns seen by O, by line
+   * @param cell      the cell that changed
+   * @param before    the piece before the change, or null
+   * @param after     the piece after the change, or null
+   */
+  void update(int[] xPatterns, int[] oPatterns, int cell, Player before, Player after) {
+    int xChange = digit(after, Player.X) - digit(before, Player.X);
+    int oChange = digit(after, Player.O) - digit(before, Player.O);
+    for (int axis = 0; axis < AXES; axis++) {
+      int slot = cell * AXES + axis;
+      int line = cellLines[slot];
+      if (lineLengths[line] <= MAX_LENGTH) {
+        xPatterns[line] += xChange * cellWeights[slot];
+        oPatterns[line] += oChange * cellWeights[slot];
+      }
+    }
+  }
+
+  /**
+   * Returns the digit of a piece in a pattern seen by the given player.
+   *
+   * @param piece the piece, or null
+   * @param own   the player the pattern belongs to
+   * @return 0 when empty, 1 for the player's piece, 2 for the opponent's
+   */
+  private static int digit(Player piece, Player own) {
+    if (piece == null) {
+      return 0;
+    }
+    return piece == own ? 1 : 2;
+  }
+
+  /**
+   * Looks up the flips of a placement along one axis. The low four bits of the result hold
+   * the flips along the first ray of the axis and the next four bits those along the second,
+   * where the axes follow the {@link HexTopology} directions in pairs: row, constant q and
+   * constant s.
+   *
+   * @param patterns the patterns seen by the player placing the piece, by line
+   * @param cell     the cell of the placement
+   * @param axis     the axis
+   * @return the packed flip counts, or {@link #UNCOVERED} if the line has no table
+   */
+  int flips(int[] patterns, int cell, int axis) {
+    int slot = cell * AXES + axis;
+    int line = cellLines[slot];
+    int length = lineLengths[line];
+    if (length > MAX_LENGTH) {
+      return UNCOVERED;
+    }
+    return tables[length][patterns[line] * length + cellPositions[slot]] & 0xFF;
+  }
+}
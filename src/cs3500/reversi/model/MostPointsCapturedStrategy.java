@@ -1,6 +1,5 @@
 package cs3500.reversi.model;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -8,6 +7,8 @@ import java.util.Optional;
  * This strategy implements the required behavior of selecting the move with
  * the most captured pieces
  * and breaking ties using the uppermost-leftmost coordinate.
+ * The points of every move come from the flip counts the model reports in one sweep of the
+ * board, so the strategy works on any ReadOnlyReversi and never copies the game it is given.
  */
 public class MostPointsCapturedStrategy implements FallibleReversiStrategy {
 
@@ -22,19 +23,22 @@ public class MostPointsCapturedStrategy implements FallibleReversiStrategy {
    *         or empty if no valid move is available or an error occurs.
    */
   public Optional<AxialCoordinate> chooseMove(ReadOnlyReversi model, Player player) {
-    int maxPoints = model.getScore(player);
-    AxialCoordinate bestMove = new AxialCoordinate(0, 0);
-    AxialCoordinate leftMove = new AxialCoordinate(0, 0);
+    int score = model.getScore(player);
+    int maxPoints = score;
+    AxialCoordinate bestMove = AxialCoordinate.of(0, 0);
+    AxialCoordinate leftMove = AxialCoordinate.of(0, 0);
     boolean tie = false;
     int maxS = Integer.MIN_VALUE;
     int minR = Integer.MAX_VALUE;
     int minQ = Integer.MAX_VALUE;
-    List<AxialCoordinate> coords = model.getValidMoves();
+    int[] moves = new int[model.getCellCount()];
+    int[] flips = new int[moves.length];
+    int count = model.getMoveFlipCounts(moves, flips);
+    boolean moving = model.getCurrentPlayer() == player;
 
-    for (AxialCoordinate move : coords) {
-      BasicReversi temp = new BasicReversi((BasicReversi) model);
-      temp.movePiece(move.getQ(), move.getR());
-      int points = temp.getScore(player);
+    for (int i = 0; i < count; i++) {
+      AxialCoordinate move = model.getCoordAt(moves[i]);
+      int points = moving ? score + flips[i] + 1 : score - flips[i];
 
       if (points > maxPoints) {
         maxPoints = points;
@@ -0,0 +1,261 @@
+package cs3500.reversi.model;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the legal moves and flip counts of positions that were already looked at, keyed
+ * by the Zobrist key of the position and the number of cells of the board. Openings repeat
+ * from game to game and searches reach the same position along many lines, so one cache can
+ * be shared by many games, from any thread.
+ * A cache is opt-in: a game only uses one after {@link BasicReversi#setMoveCache(MoveCache)},
+ * and {@link Perft} only with one passed to it. A game only consults it for
+ * {@link ReadOnlyReversi#getMoveFlipCounts(int[], int[])}. Queries such as getValidMoves and
+ * hasValidMove read the legal move sets the game keeps anyway, and a lookup would cost more
+ * than it saves. A cache pays off for jobs that ask for the flip counts of the same positions
+ * many times, such as running a strategy over many games or a perft search.
+ * The cache holds a fixed number of positions. When it is full, the slot to reuse is chosen
+ * with the CLOCK algorithm: a hand sweeps the slots, sparing each slot used since the hand
+ * last passed it once, and takes the first one that was not. That keeps positions that are
+ * still being asked about close to how LRU would, without reordering anything on a hit.
+ * Keys are found through an open-addressed table of primitive keys with linear probing, so
+ * a lookup boxes nothing, and each slot keeps its move arrays to be overwritten by the next
+ * position stored in it. Two positions with the same key are taken to be the same position,
+ * as everywhere the key is used.
+ *
+ * @field keys the position key held in each slot
+ * @field sizes the number of cells of the board held in each slot, or 0 if it is empty
+ * @field counts the number of legal moves held in each slot
+ * @field moves the cell number of each legal move, for each slot
+ * @field flipCounts the number of pieces each legal move flips, for each slot
+ * @field referenced whether each slot was used since the hand last passed it
+ * @field tableKeys the key in each entry of the table
+ * @field tableSlots one more than the slot of the key in each entry, or 0 if it is empty
+ * @field mask one less than the length of the table, a power of two
+ * @field size the number of slots in use
+ * @field hand the next slot the clock looks at
+ * @field hits the number of lookups that found their position
+ * @field misses the number of lookups that did not
+ */
+public final class MoveCache {
+  private final long[] keys;
+
+  private final int[] sizes;
+
+  private final int[] counts;
+
+  private final int[][] moves;
+
+  private final int[][] flipCounts;
+
+  private final boolean[] referenced;
+
+  private final long[] tableKeys;
+
+  private final int[] tableSlots;
+
+  private final int mask;
+
+  private int size;
+
+  private int hand;
+
+  private long hits;
+
+  private long misses;
+
+  /**
+   * Constructs an empty cache holding up to the given number of positions.
+   *
+   * @param capacity the most positions to hold
+   * @throws IllegalArgumentException if the capacity is not positive or above 2^28
+   */
+  public MoveCache(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 28) {
+      throw new IllegalArgumentException("Invalid capacity");
+    }
+    this.keys = new long[capacity];
+    this.sizes = new int[capacity];
+    this.counts = new int[capacity];
+    this.moves = new int[capacity][];
+    this.flipCounts = new int[capacity][];
+    this.referenced = new boolean[capacity];
+    // at most half full, so every probe ends at an empty entry soon
+    int length = Integer.highestOneBit(capacity) << 2;
+    this.tableKeys = new long[length];
+    this.tableSlots = new int[length];
+    this.mask = length - 1;
+  }
+
+  /**
+   * Copies the moves and flip counts of a position into the given buffers if the cache holds
+   * it, and counts the lookup as a hit or a miss.
+   *
+   * @param cells      the number of cells of the board
+   * @param key        the Zobrist key of the position, including the side to move
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of moves written to the buffers, or -1 if the position is not cached
+   */
+  public synchronized int lookup(int cells, long key, int[] moves, int[] flipCounts) {
+    int slot = tableSlots[find(key)] - 1;
+    if (slot < 0 || sizes[slot] != cells) {
+      misses++;
+      return -1;
+    }
+    hits++;
+    referenced[slot] = true;
+    int count = counts[slot];
+    System.arraycopy(this.moves[slot], 0, moves, 0, count);
+    System.arraycopy(this.flipCounts[slot], 0, flipCounts, 0, count);
+    return count;
+  }
+
+  /**
+   * Stores the moves and flip counts of a position, replacing whatever the cache held for
+   * its key. A full cache makes room with the clock. The moves are copied into the arrays
+   * the slot already has when they are long enough.
+   *
+   * @param cells      the number of cells of the board
+   * @param key        the Zobrist key of the position, including the side to move
+   * @param moves      the cell number of each move
+   * @param flipCounts the number of pieces each move flips
+   * @param count      the number of moves in the buffers
+   */
+  public synchronized void store(int cells, long key, int[] moves, int[] flipCounts,
+                                 int count) {
+    int entry = find(key);
+    int slot = tableSlots[entry] - 1;
+    if (slot < 0) {
+      slot = victim();
+      if (sizes[slot] != 0) {
+        remove(find(keys[slot]));
+        size--;
+        entry = find(key);
+      }
+      tableKeys[entry] = key;
+      tableSlots[entry] = slot + 1;
+      size++;
+    }
+    if (this.moves[slot] == null || this.moves[slot].length < count) {
+      this.moves[slot] = new int[Math.max(count, moves.length)];
+      this.flipCounts[slot] = new int[this.moves[slot].length];
+    }
+    keys[slot] = key;
+    sizes[slot] = cells;
+    counts[slot] = count;
+    System.arraycopy(moves, 0, this.moves[slot], 0, count);
+    System.arraycopy(flipCounts, 0, this.flipCounts[slot], 0, count);
+    referenced[slot] = false;
+  }
+
+  /**
+   * Returns the entry of the table holding the given key, or the empty entry where it
+   * would go.
+   *
+   * @param key the position key
+   * @return the index of the entry
+   */
+  private int find(long key) {
+    int entry = home(key);
+    while (tableSlots[entry] != 0 && tableKeys[entry] != key) {
+      entry = (entry + 1) & mask;
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the entry of the table a key is probed from.
+   *
+   * @param key the position key
+   * @return the index of the entry
+   */
+  private int home(long key) {
+    // Zobrist keys are already uniform, so folding the halves is enough
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+
+  /**
+   * Empties an entry of the table, shifting back the entries probed past it so every key
+   * can still be reached from its home entry without tombstones.
+   *
+   * @param entry the index of the entry to empty
+   */
+  private void remove(int entry) {
+    int gap = entry;
+    for (int next = (gap + 1) & mask; tableSlots[next] != 0; next = (next + 1) & mask) {
+      int home = home(tableKeys[next]);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        tableKeys[gap] = tableKeys[next];
+        tableSlots[gap] = tableSlots[next];
+        gap = next;
+      }
+    }
+    tableSlots[gap] = 0;
+  }
+
+  /**
+   * Advances the hand to the slot to reuse: the first empty slot or the first one not used
+   * since the hand last passed it, clearing the use of every slot it spares.
+   *
+   * @return the slot to reuse
+   */
+  private int victim() {
+    while (sizes[hand] != 0 && referenced[hand]) {
+      referenced[hand] = false;
+      hand = (hand + 1) % keys.length;
+    }
+    int slot = hand;
+    hand = (hand + 1) % keys.length;
+    return slot;
+  }
+
+  /**
+   * Empties the cache and resets its counters. The slots keep their arrays for the
+   * positions stored next.
+   */
+  public synchronized void clear() {
+    Arrays.fill(sizes, 0);
+    Arrays.fill(referenced, false);
+    Arrays.fill(tableSlots, 0);
+    size = 0;
+    hand = 0;
+    hits = 0;
+    misses = 0;
+  }
+
+  /**
+   * Returns the most positions the cache holds.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the number of positions the cache holds now.
+   *
+   * @return the size
+   */
+  public synchronized int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of lookups that found their position.
+   *
+   * @return the hit count
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that did not find their position.
+   *
+   * @return the miss count
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
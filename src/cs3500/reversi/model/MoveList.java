@@ -0,0 +1,99 @@
+package cs3500.reversi.model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a growable list of moves packed as ints, so move generation does not allocate a
+ * coordinate object per move. A packed move is the number of its cell in row order, the same
+ * number used by {@link ReadOnlyReversi#getCellAt(int)} and
+ * {@link ReadOnlyReversi#getCellIndex(int, int)}.
+ * A list only grows, so one list can be cleared and refilled for every position of a search.
+ *
+ * @field moves the packed moves, valid up to size
+ * @field size the number of moves in the list
+ */
+public final class MoveList {
+  private int[] moves;
+
+  private int size;
+
+  /**
+   * Constructs an empty move list with room for a typical number of moves.
+   */
+  public MoveList() {
+    this(16);
+  }
+
+  /**
+   * Constructs an empty move list with room for the given number of moves.
+   *
+   * @param capacity the number of moves the list holds before growing
+   * @throws IllegalArgumentException if the capacity is negative
+   */
+  public MoveList(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Invalid capacity");
+    }
+    this.moves = new int[capacity];
+  }
+
+  /**
+   * Adds a move to the end of the list, growing the list if it is full.
+   *
+   * @param move the packed move
+   */
+  public void add(int move) {
+    if (size == moves.length) {
+      moves = Arrays.copyOf(moves, Math.max(16, moves.length * 2));
+    }
+    moves[size++] = move;
+  }
+
+  /**
+   * Returns the move at the given position in the list.
+   *
+   * @param index the position in the list
+   * @return the packed move
+   * @throws IndexOutOfBoundsException if the index is not in the list
+   */
+  public int get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Invalid index");
+    }
+    return moves[index];
+  }
+
+  /**
+   * Returns the number of moves in the list.
+   *
+   * @return the size of the list
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Determines whether the list holds no moves.
+   *
+   * @return whether the list is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every move, keeping the storage for reuse.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Returns a copy of the moves in the list.
+   *
+   * @return the packed moves in order
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(moves, size);
+  }
+}
@@ -0,0 +1,65 @@
+package cs3500.reversi.model;
+
+/**
+ * Represents a move made through {@link Reversi#makeMove(int, int)} or
+ * {@link Reversi#makePass()}: the placed cell, the number of pieces it flipped, the player who
+ * made it and its place on the game's undo stack. The flipped cells and the turn state from
+ * before the move stay on that stack, so a record holds no arrays. Records are only meaningful
+ * to the model that created them and must be undone in the reverse order they were made.
+ *
+ * @field cell the topology index of the placed piece, or -1 for a pass
+ * @field flipCount the number of pieces the move flipped
+ * @field mover the player who made the move
+ * @field depth the number of moves on the game's undo stack once this move was made
+ */
+public final class MoveRecord {
+  final int cell;
+
+  final int flipCount;
+
+  final Player mover;
+
+  final int depth;
+
+  /**
+   * Constructs a record of a move.
+   *
+   * @param cell      the topology index of the placed piece, or -1 for a pass
+   * @param flipCount the number of pieces the move flipped
+   * @param mover     the player who made the move
+   * @param depth     the number of moves on the game's undo stack once this move was made
+   */
+  MoveRecord(int cell, int flipCount, Player mover, int depth) {
+    this.cell = cell;
+    this.flipCount = flipCount;
+    this.mover = mover;
+    this.depth = depth;
+  }
+
+  /**
+   * Determines whether this record is of a pass.
+   *
+   * @return whether the move was a pass
+   */
+  public boolean isPass() {
+    return cell < 0;
+  }
+
+  /**
+   * Returns the number of pieces the move flipped.
+   *
+   * @return the number of flipped pieces
+   */
+  public int getFlipCount() {
+    return flipCount;
+  }
+
+  /**
+   * Returns the player who made the move.
+   *
+   * @return the player who made the move
+   */
+  public Player getMover() {
+    return mover;
+  }
+}
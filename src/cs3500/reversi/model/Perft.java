@@ -0,0 +1,268 @@
+package cs3500.reversi.model;
+
+/**
+ * Counts the positions reachable from a game in a fixed number of plies (perft), to measure
+ * how fast a model generates and plays moves and to check two models against each other.
+ * It searches through a game's {@link ReversiEngine}, which the caller takes from the
+ * concrete model, such as {@link BasicReversi#engine()}: moves are tried with
+ * {@link ReversiEngine#play(int)} and taken back with {@link ReversiEngine#undo()}, so the
+ * game ends in the position it started from and no listener is notified. Every move
+ * comes from the engine's own move list, so the checks of the {@link Reversi} methods are
+ * skipped.
+ * A player without moves passes, and the pass counts as a ply. A finished game is a leaf,
+ * even when plies remain.
+ * A search given a {@link MoveCache} takes the move count of every position one ply from
+ * the leaves from the cache. Many lines of play reach the same position, so deeper searches
+ * find most of those positions already there.
+ *
+ * @field engine the engine of the game being searched
+ * @field lists one reusable move list per remaining depth
+ * @field cache the cache of move counts one ply from the leaves, or null for none
+ * @field moves the buffer for the moves of a cached position
+ * @field flips the buffer for the flip counts of a cached position
+ */
+public final class Perft {
+  private final ReversiEngine engine;
+
+  private final MoveList[] lists;
+
+  private final MoveCache cache;
+
+  private final int[] moves;
+
+  private final int[] flips;
+
+  /**
+   * Constructs a perft search over the given engine.
+   *
+   * @param engine the engine of the game to search
+   * @param depth  the deepest search that will be run
+   * @param cache  the cache of move counts, or null for none
+   */
+  private Perft(ReversiEngine engine, int depth, MoveCache cache) {
+    this.engine = engine;
+    this.lists = new MoveList[depth + 1];
+    for (int i = 0; i <= depth; i++) {
+      lists[i] = new MoveList();
+    }
+    this.cache = cache;
+    this.moves = new int[engine.cellCount()];
+    this.flips = new int[moves.length];
+  }
+
+  /**
+   * Counts the leaf positions reachable from the game's current position in the given
+   * number of plies.
+   *
+   * @param engine the engine of a started game, left unchanged afterwards
+   * @param depth  the number of plies
+   * @return the number of leaf positions
+   * @throws IllegalArgumentException if the depth is negative
+   */
+  public static long count(ReversiEngine engine, int depth) {
+    return count(engine, depth, null);
+  }
+
+  /**
+   * Counts the leaf positions reachable in the given number of plies, taking the move counts
+   * one ply from the leaves from the given cache and storing those it does not hold.
+   *
+   * @param engine the engine of a started game, left unchanged afterwards
+   * @param depth  the number of plies
+   * @param cache  the cache of move counts, or null for none
+   * @return the number of leaf positions
+   * @throws IllegalArgumentException if the depth is negative
+   */
+  public static long count(ReversiEngine engine, int depth, MoveCache cache) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("Invalid depth");
+    }
+    return new Perft(engine, depth, cache).search(depth);
+  }
+
+  /**
+   * Counts the leaf positions reachable from the game's current position and times the
+   * count.
+   *
+   * @param engine the engine of a started game, left unchanged afterwards
+   * @param depth  the number of plies
+   * @return the node count and how long it took
+   * @throws IllegalArgumentException if the depth is negative
+   */
+  public static Result run(ReversiEngine engine, int depth) {
+    return run(engine, depth, null);
+  }
+
+  /**
+   * Counts the leaf positions reachable in the given number of plies with the given cache
+   * and times the count.
+   *
+   * @param engine the engine of a started game, left unchanged afterwards
+   * @param depth  the number of plies
+   * @param cache  the cache of move counts, or null for none
+   * @return the node count and how long it took
+   * @throws IllegalArgumentException if the depth is negative
+   */
+  public static Result run(ReversiEngine engine, int depth, MoveCache cache) {
+    long start = System.nanoTime();
+    long nodes = count(engine, depth, cache);
+    return new Result(depth, nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Counts the leaves below the current position. At the last ply the moves are counted
+   * without being played.
+   *
+   * @param depth the number of plies left
+   * @return the number of leaf positions
+   */
+  private long search(int depth) {
+    if (depth == 0 || engine.isOver()) {
+      return 1;
+    }
+    if (depth == 1 && cache != null) {
+      // a player without moves passes into a single leaf
+      return Math.max(1, cachedMoveCount());
+    }
+    MoveList moves = lists[depth];
+    engine.legalMoves(moves);
+    if (moves.isEmpty()) {
+      engine.pass();
+      long nodes = search(depth - 1);
+      engine.undo();
+      return nodes;
+    }
+    if (depth == 1) {
+      return moves.size();
+    }
+    long nodes = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      engine.play(moves.get(i));
+      nodes += search(depth - 1);
+      engine.undo();
+    }
+    return nodes;
+  }
+
+  /**
+   * Returns the number of legal moves in the current position, from the cache if it holds
+   * the position, and otherwise worked out by the engine and stored.
+   *
+   * @return the number of legal moves
+   */
+  private int cachedMoveCount() {
+    int cells = moves.length;
+    long key = engine.positionKey();
+    int count = cache.lookup(cells, key, moves, flips);
+    if (count < 0) {
+      count = engine.moveFlipCounts(moves, flips);
+      cache.store(cells, key, moves, flips, count);
+    }
+    return count;
+  }
+
+  /**
+   * Runs perft from the start of a game on both models and prints the counts and speeds,
+   * then runs it on the first model again with a move cache and prints its hit rate.
+   * Takes the number of rows and the depth as optional arguments, 7 and 6 by default.
+   *
+   * @param args the number of rows and the depth
+   */
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+    BasicReversi basic = new BasicReversi(rows);
+    BitboardReversi bits = new BitboardReversi(rows);
+    basic.startGame();
+    bits.startGame();
+    for (int d = 1; d <= depth; d++) {
+      System.out.println("BasicReversi " + run(basic.engine(), d));
+    }
+    for (int d = 1; d <= depth; d++) {
+      System.out.println("BitboardReversi " + run(bits.engine(), d));
+    }
+    MoveCache cache = new MoveCache(1 << 16);
+    for (int d = 1; d <= depth; d++) {
+      Result result = run(basic.engine(), d, cache);
+      long lookups = cache.getHits() + cache.getMisses();
+      System.out.printf("BasicReversi cached %s, %d of %d lookups hit%n", result,
+          cache.getHits(), lookups);
+      cache.clear();
+    }
+  }
+
+  /**
+   * Represents the outcome of a timed perft run.
+   *
+   * @field depth the number of plies searched
+   * @field nodes the number of leaf positions found
+   * @field nanos the time the count took, in nanoseconds
+   */
+  public static final class Result {
+    private final int depth;
+
+    private final long nodes;
+
+    private final long nanos;
+
+    /**
+     * Constructs the result of a run.
+     *
+     * @param depth the number of plies searched
+     * @param nodes the number of leaf positions found
+     * @param nanos the time the count took, in nanoseconds
+     */
+    private Result(int depth, long nodes, long nanos) {
+      this.depth = depth;
+      this.nodes = nodes;
+      this.nanos = nanos;
+    }
+
+    /**
+     * Returns the number of plies searched.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    /**
+     * Returns the number of leaf positions found.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+      return nodes;
+    }
+
+    /**
+     * Returns how long the count took.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+      return nanos;
+    }
+
+    /**
+     * Returns the number of leaf positions found per second.
+     *
+     * @return the node rate
+     */
+    public double getNodesPerSecond() {
+      return nanos == 0 ? 0 : nodes * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Formats the result as the depth, the node count, the time and the node rate.
+     *
+     * @return a one line summary of the run
+     */
+    @Override
+    public String toString() {
+      return String.format("perft(%d) = %d in %.1f ms (%.0f nodes/s)", depth, nodes,
+              nanos / 1_000_000.0, getNodesPerSecond());
+    }
+  }
+}
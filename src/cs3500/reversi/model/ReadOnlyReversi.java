@@ -1,5 +1,6 @@
 package cs3500.reversi.model;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +27,60 @@ public interface ReadOnlyReversi {
    */
   Map<Integer, HexCell[]> getBoard();
 
+  /**
+   * Returns the number of cells on the board. Cells are numbered from 0 in row order, from
+   * the top row down and left to right inside a row, so together with
+   * {@link #getPieceAt(int)} and {@link #getCoordAt(int)} the board can be walked without
+   * copying it.
+   *
+   * @return the number of cells
+   */
+  int getCellCount();
+
+  /**
+   * Returns a copy of the cell with the given number in row order. Changing the copy does
+   * not change the game. Readers that walk the board should use {@link #getPieceAt(int)} and
+   * {@link #getCoordAt(int)}, which do not allocate.
+   *
+   * @param index the number of the cell
+   * @return the cell with that number
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not between 0 and the cell count
+   */
+  HexCell getCellAt(int index);
+
+  /**
+   * Returns the piece on the cell with the given number in row order. Never allocates.
+   *
+   * @param index the number of the cell
+   * @return the piece on that cell, or null if it is empty
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not between 0 and the cell count
+   */
+  Player getPieceAt(int index);
+
+  /**
+   * Returns the coordinate of the cell with the given number in row order. Coordinates are
+   * shared, so this never allocates.
+   *
+   * @param index the number of the cell
+   * @return the coordinate of that cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the index is not between 0 and the cell count
+   */
+  AxialCoordinate getCoordAt(int index);
+
+  /**
+   * Returns the number in row order of the cell at the given coordinates. This is the packed
+   * form of a move used by {@link MoveList} and the int overloads of the move methods.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the number of that cell
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  int getCellIndex(int q, int r);
+
   /**
    * Returns the current player enum representing a player or their piece.
    *
@@ -43,6 +98,15 @@ public interface ReadOnlyReversi {
    */
   boolean isGameOver();
 
+  /**
+   * Returns the number of passes in a row that led to the current position: 0 after a move,
+   * 1 after a single pass, and 2 once a second pass has ended the game.
+   *
+   * @return the number of consecutive passes
+   * @throws IllegalStateException if the game has not started
+   */
+  int getConsecutivePasses();
+
   /**
    * Returns the score (amount of pieces belonging to the given player).
    *
@@ -60,6 +124,88 @@ public interface ReadOnlyReversi {
    */
   List<AxialCoordinate> getValidMoves();
 
+  /**
+   * Returns a list of valid moves for the given player, in row order, whether or not it is
+   * that player's turn. Nothing in the game changes.
+   *
+   * @param player the player to list moves for
+   * @return a list of valid moves for that player
+   * @throws IllegalArgumentException if the player is null
+   */
+  List<AxialCoordinate> getValidMoves(Player player);
+
+  /**
+   * Determines whether the given player could place a piece at the given coordinates,
+   * whether or not it is that player's turn. The cell must be empty. Nothing in the game
+   * changes.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return whether the move is valid for that player
+   * @throws IllegalArgumentException if the coordinates are not on the board or the player
+   *                                  is null
+   */
+  boolean isValidMove(int q, int r, Player player);
+
+  /**
+   * Collects the pieces the given player would flip by placing a piece at the given
+   * coordinates, whether or not it is that player's turn. Nothing in the game changes.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return the pieces that would be flipped, empty if the move is not valid
+   * @throws IllegalArgumentException if the coordinates are not on the board or the player
+   *                                  is null
+   */
+  List<HexCell> collectFlips(int q, int r, Player player);
+
+  /**
+   * Determines whether the player to move has at least one valid move, stopping at the
+   * first one found instead of listing them all.
+   *
+   * @return whether a valid move exists
+   * @throws IllegalStateException if the game has not started
+   */
+  boolean hasValidMove();
+
+  /**
+   * Returns an iterator over the valid moves of the player to move, in the same order as
+   * {@link #getValidMoves()}. Moves are found as the iterator advances, so a caller that
+   * stops early skips the rest of the board. The iterator must not be used after the game
+   * changes.
+   *
+   * @return a lazy iterator over the valid moves
+   * @throws IllegalStateException if the game has not started
+   */
+  Iterator<AxialCoordinate> validMoveIterator();
+
+  /**
+   * Finds every legal move of the player to move together with the number of pieces it
+   * would flip, in one sweep of the board. Moves are written as cell numbers in row order
+   * (see {@link #getCoordAt(int)}), so callers can keep the buffers and reuse them for every
+   * call without allocating.
+   *
+   * @param moves      the buffer for the cell number of each move, at least
+   *                   {@link #getCellCount()} long
+   * @param flipCounts the buffer for the number of pieces each move flips, at least
+   *                   {@link #getCellCount()} long
+   * @return the number of legal moves written to the buffers
+   * @throws IllegalStateException if the game has not started
+   */
+  int getMoveFlipCounts(int[] moves, int[] flipCounts);
+
+  /**
+   * Replaces the contents of the given list with the valid moves of the player to move,
+   * packed as cell numbers in row order. Reusing one list allocates nothing once it has
+   * grown to fit.
+   *
+   * @param moves the list to fill
+   * @throws IllegalStateException if the game has not started
+   */
+  void getValidMoves(MoveList moves);
+
   /**
    * For a given cell, uses all the previous helpers to check all the different directions for
    * a possible move.
@@ -72,6 +218,17 @@ public interface ReadOnlyReversi {
    */
   boolean isValidMoves(int q, int r);
 
+  /**
+   * Determines whether the player to move could place a piece on the cell with the given
+   * number. Unlike {@link #isValidMoves(int, int)}, an occupied cell is never valid.
+   *
+   * @param cell the number of the cell in row order
+   * @return whether the move is valid
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  boolean isValidMoves(int cell);
+
   /**
    * Finds the cell at the given coordinate.
    * @param q the q coordinate
@@ -79,4 +236,14 @@ public interface ReadOnlyReversi {
    * @return the hex cell at the given coordinates
    */
   HexCell findCell(int q, int r);
+
+  /**
+   * Returns a 64-bit Zobrist key identifying the pieces on the board and the player to move.
+   * Equal positions on boards of the same size have equal keys in every game and every run,
+   * so the key can index transposition tables, result caches and game databases.
+   *
+   * @return the key of the current position
+   * @throws IllegalStateException if the game has not started
+   */
+  long getPositionKey();
 }
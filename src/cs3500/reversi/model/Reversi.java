@@ -36,6 +36,18 @@ public interface Reversi extends ReadOnlyReversi {
    */
   void movePiece(int q, int r);
 
+  /**
+   * Plays the current player's piece on the cell with the given number in row order, the
+   * packed form of a move from {@link MoveList}. Behaves like {@link #movePiece(int, int)}.
+   *
+   * @param cell the number of the cell
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalStateException    if the game is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  void movePiece(int cell);
+
   /**
    * Passes the move to the next player.
    * If passMove is called consecutively it will end the game.
@@ -60,5 +72,49 @@ public interface Reversi extends ReadOnlyReversi {
    */
   List<HexCell> collectFlips(int q, int r);
 
+  /**
+   * Plays the current player's piece at the given coordinates like {@link #movePiece(int, int)},
+   * but without notifying listeners, and returns a record that can take the move back.
+   * Meant for searches that try moves on a single board instead of copying it.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return a record of the move for {@link #unmakeMove(MoveRecord)}
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  MoveRecord makeMove(int q, int r);
+
+  /**
+   * Plays the current player's piece on the cell with the given number in row order, the
+   * packed form of a move from {@link MoveList}. Behaves like {@link #makeMove(int, int)}.
+   *
+   * @param cell the number of the cell
+   * @return a record of the move for {@link #unmakeMove(MoveRecord)}
+   * @throws IllegalStateException    if the game has not started or is already over
+   * @throws IllegalArgumentException if the cell is not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  MoveRecord makeMove(int cell);
+
+  /**
+   * Passes the turn like {@link #passMove()}, but without notifying listeners, and returns a
+   * record that can take the pass back.
+   *
+   * @return a record of the pass for {@link #unmakeMove(MoveRecord)}
+   * @throws IllegalStateException if the game has not started or is already over
+   */
+  MoveRecord makePass();
+
+  /**
+   * Restores the exact state from before the given move, including the current player and
+   * the number of consecutive passes. Records must be undone in the reverse order they were
+   * made, and listeners are not notified.
+   *
+   * @param record the record returned when the move was made
+   * @throws IllegalArgumentException if the record is not of the last move not yet undone
+   */
+  void unmakeMove(MoveRecord record);
 
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package cs3500.reversi.model;
+
+/**
+ * The unchecked core of a game of Reversi, for trusted callers such as searches, simulations
+ * and {@link Perft} that only play moves they have already generated. Cells are numbered in
+ * row order, the same numbers {@link MoveList} holds.
+ * Nothing here validates its input or the state of the game. The preconditions are checked
+ * with assertions only, so running with -ea catches a caller that breaks them, and without
+ * assertions a broken precondition leaves the game in an undefined state. The checked
+ * {@link Reversi} methods of a game validate their arguments and then delegate to its engine.
+ * The engine is not part of the {@link Reversi} interface, so views and controllers handed a
+ * game can not reach it; trusted callers take it from the concrete model. An engine takes no
+ * lock, so a game in concurrent mode does not hand one out, and it is meant for boards its
+ * caller owns, like those from {@link ScratchBoards}. Listeners are never notified.
+ * Moves and passes are taken back from an undo stack of primitive arrays the game keeps
+ * between moves, so a search that plays and undoes moves does not allocate per node.
+ */
+public interface ReversiEngine {
+
+  /**
+   * Returns the number of cells on the board.
+   *
+   * @return the number of cells
+   */
+  int cellCount();
+
+  /**
+   * Returns the piece on a cell.
+   * Requires a cell on the board.
+   *
+   * @param cell the number of the cell
+   * @return the piece on that cell, or null if it is empty
+   */
+  Player pieceAt(int cell);
+
+  /**
+   * Returns the player to move.
+   *
+   * @return the current player
+   */
+  Player currentPlayer();
+
+  /**
+   * Determines whether the game is over.
+   *
+   * @return whether the game is over
+   */
+  boolean isOver();
+
+  /**
+   * Returns the number of pieces the given player has on the board, even once the game is
+   * over.
+   *
+   * @param player the player
+   * @return the number of that player's pieces
+   */
+  int score(Player player);
+
+  /**
+   * Returns the Zobrist key of the position, including the side to move.
+   *
+   * @return the key of the position
+   */
+  long positionKey();
+
+  /**
+   * Determines whether the player to move could place a piece on a cell. An occupied cell is
+   * never legal.
+   * Requires a cell on the board.
+   *
+   * @param cell the number of the cell
+   * @return whether the move is legal
+   */
+  boolean isLegal(int cell);
+
+  /**
+   * Fills the given list with the legal moves of the player to move, in row order.
+   *
+   * @param moves the list to fill
+   */
+  void legalMoves(MoveList moves);
+
+  /**
+   * Finds every legal move of the player to move with the number of pieces it flips.
+   * Requires buffers with room for every cell.
+   *
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of legal moves written to the buffers
+   */
+  int moveFlipCounts(int[] moves, int[] flipCounts);
+
+  /**
+   * Plays the current player's piece on a cell and pushes what it takes to take the move back
+   * onto the game's undo stack. Ends the game if neither player can move afterwards.
+   * Requires a game that is not over and a legal move.
+   *
+   * @param cell the number of the cell
+   */
+  void play(int cell);
+
+  /**
+   * Passes the turn and pushes it onto the game's undo stack. A second pass in a row ends the
+   * game.
+   * Requires a game that is not over.
+   */
+  void pass();
+
+  /**
+   * Takes back the most recent move or pass on the undo stack, restoring the exact state from
+   * before it.
+   * Requires a move or pass to take back.
+   */
+  void undo();
+
+  /**
+   * Returns the number of moves and passes on the undo stack, which is how many times
+   * {@link #undo()} may be called.
+   *
+   * @return the depth of the undo stack
+   */
+  int depth();
+}
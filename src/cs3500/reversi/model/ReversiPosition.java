@@ -0,0 +1,719 @@
+package cs3500.reversi.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents an immutable snapshot of a game of Reversi. A position never changes after it
+ * is built, so it can be read from any thread while the live game moves on, and every
+ * {@link FallibleReversiStrategy} can run against it.
+ * Pieces are stored row by row. Deriving a child position with {@link #play(int, int)} or
+ * {@link #pass()} copies only the rows the move touches and shares the rest with the parent.
+ * Cells handed out by {@link #getBoard()} and {@link #findCell(int, int)} are built on
+ * demand, so changing their pieces does not change the position.
+ *
+ * @field topology the cell numbering and ray tables for this board size
+ * @field rows the pieces of each row, shared with related positions and never changed
+ * @field currentPlayer the player to move
+ * @field consecutivePasses the number of consecutive passes leading to this position
+ * @field gameOver whether the game ended by passing or because neither player could move
+ * @field xCount the number of cells holding an X piece
+ * @field oCount the number of cells holding an O piece
+ * @field pieceKey the Zobrist key of the pieces, without the side to move
+ * @field frontier the empty cells next to at least one piece, shared like the rows
+ * @field validMoves the legal moves of the player to move, computed on first use
+ */
+public final class ReversiPosition implements ReadOnlyReversi {
+  private final HexTopology topology;
+
+  private final Player[][] rows;
+
+  private final Player currentPlayer;
+
+  private final int consecutivePasses;
+
+  private final boolean gameOver;
+
+  private final int xCount;
+
+  private final int oCount;
+
+  private final long pieceKey;
+
+  private final BitSet frontier;
+
+  private volatile List<AxialCoordinate> validMoves;
+
+  /**
+   * Constructs a position from its parts. The rows are taken as they are and must not be
+   * changed afterwards.
+   *
+   * @param topology          the topology of the board
+   * @param rows              the pieces of each row
+   * @param currentPlayer     the player to move
+   * @param consecutivePasses the number of consecutive passes
+   * @param gameOver          whether the game is over
+   * @param xCount            the number of X pieces
+   * @param oCount            the number of O pieces
+   * @param pieceKey          the Zobrist key of the pieces
+   * @param frontier          the empty cells next to a piece
+   */
+  private ReversiPosition(HexTopology topology, Player[][] rows, Player currentPlayer,
+                          int consecutivePasses, boolean gameOver, int xCount, int oCount,
+                          long pieceKey, BitSet frontier) {
+    this.topology = topology;
+    this.rows = rows;
+    this.currentPlayer = currentPlayer;
+    this.consecutivePasses = consecutivePasses;
+    this.gameOver = gameOver;
+    this.xCount = xCount;
+    this.oCount = oCount;
+    this.pieceKey = pieceKey;
+    this.frontier = frontier;
+  }
+
+  /**
+   * Builds a position from the pieces of a board laid out in topology order.
+   *
+   * @param rowCount          the number of rows in the board
+   * @param pieces            the piece of each cell in topology order, null when empty
+   * @param currentPlayer     the player to move
+   * @param consecutivePasses the number of consecutive passes
+   * @param gameOver          whether the game is over
+   * @return the new position
+   */
+  static ReversiPosition fromPieces(int rowCount, Player[] pieces, Player currentPlayer,
+                                    int consecutivePasses, boolean gameOver) {
+    HexTopology topology = HexTopology.of(rowCount);
+    Player[][] rows = new Player[rowCount][];
+    for (int row = 0; row < rowCount; row++) {
+      rows[row] = new Player[topology.rowLength(row - rowCount / 2)];
+    }
+    int xCount = 0;
+    int oCount = 0;
+    long pieceKey = 0;
+    for (int cell = 0; cell < pieces.length; cell++) {
+      Player piece = pieces[cell];
+      rows[topology.row(cell)][topology.column(cell)] = piece;
+      if (piece == Player.X) {
+        xCount++;
+      } else if (piece == Player.O) {
+        oCount++;
+      }
+      pieceKey ^= topology.pieceKey(cell, piece);
+    }
+    BitSet frontier = new BitSet(pieces.length);
+    for (int cell = 0; cell < pieces.length; cell++) {
+      if (pieces[cell] == null) {
+        continue;
+      }
+      for (int neighbor : topology.neighbors(cell)) {
+        if (pieces[neighbor] == null) {
+          frontier.set(neighbor);
+        }
+      }
+    }
+    return new ReversiPosition(topology, rows, currentPlayer, consecutivePasses, gameOver,
+            xCount, oCount, pieceKey, frontier);
+  }
+
+  /**
+   * Takes a snapshot of any started game. Returns the same object for a position, and uses
+   * {@link BasicReversi#snapshot()} for a BasicReversi. Other models are read cell by cell,
+   * along with their pass count.
+   *
+   * @param model the game to snapshot
+   * @return an immutable position equal to the game's current state
+   * @throws IllegalStateException if the game has not started
+   */
+  public static ReversiPosition of(ReadOnlyReversi model) {
+    if (model instanceof ReversiPosition) {
+      return (ReversiPosition) model;
+    }
+    if (model instanceof BasicReversi) {
+      return ((BasicReversi) model).snapshot();
+    }
+    Player currentPlayer = model.getCurrentPlayer();
+    boolean over = model.isGameOver();
+    Map<Integer, HexCell[]> board = model.getBoard();
+    HexTopology topology = HexTopology.of(model.getRows());
+    Player[] pieces = new Player[topology.cellCount()];
+    for (HexCell[] row : board.values()) {
+      for (HexCell cell : row) {
+        pieces[topology.index(cell.getQ(), cell.getR())] = cell.getPiece();
+      }
+    }
+    return fromPieces(model.getRows(), pieces, currentPlayer, model.getConsecutivePasses(),
+            over);
+  }
+
+  /**
+   * Determines whether this position was taken with the given turn state, so a cached
+   * snapshot can be reused while only the board is known to be unchanged.
+   *
+   * @param player the player to move
+   * @param passes the number of consecutive passes
+   * @param over   whether the game is over
+   * @return whether the turn state matches
+   */
+  boolean hasTurnState(Player player, int passes, boolean over) {
+    return currentPlayer == player && consecutivePasses == passes && gameOver == over;
+  }
+
+  /**
+   * Returns the number of consecutive passes leading to this position.
+   *
+   * @return the pass count
+   */
+  @Override
+  public int getConsecutivePasses() {
+    return consecutivePasses;
+  }
+
+  /**
+   * Returns the piece on the given cell.
+   *
+   * @param cell the topology index of the cell
+   * @return the piece, or null if the cell is empty
+   */
+  private Player pieceAt(int cell) {
+    return rows[topology.row(cell)][topology.column(cell)];
+  }
+
+  /**
+   * Helper that determines whether the given coordinates are on the board.
+   *
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  private void validInput(int q, int r) {
+    if (!topology.contains(q, r)) {
+      throw new IllegalArgumentException("Invalid coordinates");
+    }
+  }
+
+  /**
+   * Counts the pieces the given player would flip in one direction from the given cell.
+   *
+   * @param cell   the topology index of the placement
+   * @param dir    the direction to walk
+   * @param player the player placing the piece
+   * @return the number of pieces flipped in that direction
+   */
+  private int flipsInDirection(int cell, int dir, Player player) {
+    int[] ray = topology.ray(cell, dir);
+    for (int i = 0; i < ray.length; i++) {
+      Player piece = pieceAt(ray[i]);
+      if (piece == null) {
+        return 0;
+      }
+      if (piece == player) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Derives the position reached when the player to move places a piece at the given
+   * coordinates. Only the rows holding the placed or flipped pieces are copied.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the child position
+   * @throws IllegalStateException    if the game is over
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   * @throws IllegalStateException    if the move is not allowable or the cell is occupied
+   */
+  public ReversiPosition play(int q, int r) {
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    validInput(q, r);
+    int cell = topology.index(q, r);
+    if (pieceAt(cell) != null) {
+      throw new IllegalStateException("Can't Put Piece on Another Piece");
+    }
+    Player[][] childRows = rows.clone();
+    boolean[] copied = new boolean[rows.length];
+    long key = pieceKey;
+    int flipped = 0;
+    for (int dir = 0; dir < HexTopology.DIRECTIONS; dir++) {
+      int count = flipsInDirection(cell, dir, currentPlayer);
+      int[] ray = topology.ray(cell, dir);
+      for (int i = 0; i < count; i++) {
+        key ^= topology.pieceKey(ray[i], Player.X) ^ topology.pieceKey(ray[i], Player.O);
+        setPiece(childRows, copied, ray[i], currentPlayer);
+      }
+      flipped += count;
+    }
+    if (flipped == 0) {
+      throw new IllegalStateException("Not a valid move");
+    }
+    setPiece(childRows, copied, cell, currentPlayer);
+    key ^= topology.pieceKey(cell, currentPlayer);
+    BitSet childFrontier = (BitSet) frontier.clone();
+    childFrontier.clear(cell);
+    for (int neighbor : topology.neighbors(cell)) {
+      if (pieceAt(neighbor) == null) {
+        childFrontier.set(neighbor);
+      }
+    }
+    int gained = flipped + 1;
+    int childX = currentPlayer == Player.X ? xCount + gained : xCount - flipped;
+    int childO = currentPlayer == Player.O ? oCount + gained : oCount - flipped;
+    ReversiPosition child = new ReversiPosition(topology, childRows, opponent(), 0, false,
+            childX, childO, key, childFrontier);
+    if (child.nextLegal(0, opponent()) < 0 && child.nextLegal(0, currentPlayer) < 0) {
+      return new ReversiPosition(topology, childRows, opponent(), 0, true, childX, childO, key,
+              childFrontier);
+    }
+    return child;
+  }
+
+  /**
+   * Sets a piece in a child's rows, copying the row first if it is still shared.
+   *
+   * @param childRows the rows of the child position
+   * @param copied    which rows have already been copied
+   * @param cell      the topology index of the cell
+   * @param piece     the piece to set
+   */
+  private void setPiece(Player[][] childRows, boolean[] copied, int cell, Player piece) {
+    int row = topology.row(cell);
+    if (!copied[row]) {
+      childRows[row] = childRows[row].clone();
+      copied[row] = true;
+    }
+    childRows[row][topology.column(cell)] = piece;
+  }
+
+  /**
+   * Derives the position reached when the player to move passes. The board is shared
+   * completely with this position, and a second pass in a row ends the game.
+   *
+   * @return the child position
+   * @throws IllegalStateException if the game is over
+   */
+  public ReversiPosition pass() {
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    return new ReversiPosition(topology, rows, opponent(), consecutivePasses + 1,
+            consecutivePasses + 1 == 2, xCount, oCount, pieceKey, frontier);
+  }
+
+  /**
+   * Returns the player who is not to move.
+   *
+   * @return the opponent of the current player
+   */
+  private Player opponent() {
+    return currentPlayer == Player.X ? Player.O : Player.X;
+  }
+
+  /**
+   * Returns the number of rows for the game.
+   */
+  @Override
+  public int getRows() {
+    return topology.rows();
+  }
+
+  /**
+   * Returns a detached copy of the game board.
+   */
+  @Override
+  public Map<Integer, HexCell[]> getBoard() {
+    Map<Integer, HexCell[]> board = new HashMap<>();
+    int cell = 0;
+    for (int row = 0; row < rows.length; row++) {
+      HexCell[] cells = new HexCell[rows[row].length];
+      for (int column = 0; column < cells.length; column++, cell++) {
+        cells[column] = new HexCell(topology.q(cell), topology.r(cell));
+        cells[column].setPiece(rows[row][column]);
+      }
+      board.put(row, cells);
+    }
+    return board;
+  }
+
+  /**
+   * Returns the number of cells on the board.
+   *
+   * @return the number of cells
+   */
+  @Override
+  public int getCellCount() {
+    return topology.cellCount();
+  }
+
+  /**
+   * Returns a detached copy of the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the cell with that number
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public HexCell getCellAt(int index) {
+    Player piece = getPieceAt(index);
+    HexCell cell = new HexCell(topology.q(index), topology.r(index));
+    cell.setPiece(piece);
+    return cell;
+  }
+
+  /**
+   * Returns the piece on the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the piece on that cell, or null if it is empty
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public Player getPieceAt(int index) {
+    if (index < 0 || index >= topology.cellCount()) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+    return pieceAt(index);
+  }
+
+  /**
+   * Returns the shared coordinate of the cell with the given number in row order.
+   *
+   * @param index the number of the cell
+   * @return the coordinate of that cell
+   * @throws IllegalArgumentException if the index is not on the board
+   */
+  @Override
+  public AxialCoordinate getCoordAt(int index) {
+    if (index < 0 || index >= topology.cellCount()) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+    return topology.coord(index);
+  }
+
+  /**
+   * Returns the player to move.
+   */
+  @Override
+  public Player getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  /**
+   * Determines if the game ended by passing or because a move left neither player a legal
+   * move. Both are settled when the position is built, so this only reads a field.
+   *
+   * @return whether the game is over
+   */
+  @Override
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Returns the score (amount of pieces belonging to the given player).
+   *
+   * @param p the player
+   * @return the score of the player
+   * @throws IllegalStateException if the game is over
+   */
+  @Override
+  public int getScore(Player p) {
+    if (gameOver) {
+      throw new IllegalStateException("Game is over");
+    }
+    if (p == Player.X) {
+      return xCount;
+    }
+    return p == Player.O ? oCount : 0;
+  }
+
+  /**
+   * Returns an unmodifiable list of valid moves for the player to move, in row order.
+   * The list is computed on first use and then shared.
+   *
+   * @return a list of valid moves for the current player
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves() {
+    List<AxialCoordinate> moves = validMoves;
+    if (moves == null) {
+      moves = new ArrayList<>();
+      for (int cell = nextLegal(0, currentPlayer); cell >= 0;
+           cell = nextLegal(cell + 1, currentPlayer)) {
+        moves.add(topology.coord(cell));
+      }
+      moves = Collections.unmodifiableList(moves);
+      validMoves = moves;
+    }
+    return moves;
+  }
+
+  /**
+   * Returns an unmodifiable list of valid moves for the given player, in row order.
+   *
+   * @param player the player to list moves for
+   * @return a list of valid moves for that player
+   * @throws IllegalArgumentException if the player is null
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves(Player player) {
+    if (player == currentPlayer) {
+      return getValidMoves();
+    }
+    validPlayer(player);
+    List<AxialCoordinate> moves = new ArrayList<>();
+    for (int cell = nextLegal(0, player); cell >= 0; cell = nextLegal(cell + 1, player)) {
+      moves.add(topology.coord(cell));
+    }
+    return Collections.unmodifiableList(moves);
+  }
+
+  /**
+   * Determines whether the given player could place a piece at the given coordinates.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return whether the move is valid for that player
+   * @throws IllegalArgumentException if the coordinates are not on the board or the player
+   *                                  is null
+   */
+  @Override
+  public boolean isValidMove(int q, int r, Player player) {
+    validInput(q, r);
+    validPlayer(player);
+    int cell = topology.index(q, r);
+    return pieceAt(cell) == null && isLegal(cell, player);
+  }
+
+  /**
+   * Collects detached copies of the pieces the given player would flip by placing a piece
+   * at the given coordinates.
+   *
+   * @param q      the q coordinate
+   * @param r      the r coordinate
+   * @param player the player placing the piece
+   * @return the pieces that would be flipped
+   * @throws IllegalArgumentException if the coordinates are not on the board or the player
+   *                                  is null
+   */
+  @Override
+  public List<HexCell> collectFlips(int q, int r, Player player) {
+    validInput(q, r);
+    validPlayer(player);
+    int cell = topology.index(q, r);
+    List<HexCell> list = new ArrayList<>();
+    for (int dir = 0; dir < HexTopology.DIRECTIONS; dir++) {
+      int count = flipsInDirection(cell, dir, player);
+      int[] ray = topology.ray(cell, dir);
+      for (int i = 0; i < count; i++) {
+        list.add(getCellAt(ray[i]));
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Helper that checks a player was given.
+   *
+   * @param player the player
+   * @throws IllegalArgumentException if the player is null
+   */
+  private void validPlayer(Player player) {
+    if (player == null) {
+      throw new IllegalArgumentException("Invalid player");
+    }
+  }
+
+  /**
+   * Determines whether the player to move has a valid move, stopping at the first one.
+   *
+   * @return whether a valid move exists
+   */
+  @Override
+  public boolean hasValidMove() {
+    List<AxialCoordinate> moves = validMoves;
+    if (moves != null) {
+      return !moves.isEmpty();
+    }
+    return nextLegal(0, currentPlayer) >= 0;
+  }
+
+  /**
+   * Returns an iterator that scans the rows for the next valid move as it advances.
+   *
+   * @return a lazy iterator over the valid moves
+   */
+  @Override
+  public Iterator<AxialCoordinate> validMoveIterator() {
+    List<AxialCoordinate> moves = validMoves;
+    if (moves != null) {
+      return moves.iterator();
+    }
+    return new Iterator<AxialCoordinate>() {
+      private int next = nextLegal(0, currentPlayer);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public AxialCoordinate next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        AxialCoordinate move = topology.coord(next);
+        next = nextLegal(next + 1, currentPlayer);
+        return move;
+      }
+    };
+  }
+
+  /**
+   * Finds the first empty cell at or after the given one where the given player could
+   * place a piece. Only frontier cells are checked, since a move has to flip a neighbor.
+   *
+   * @param from   the first cell number to check
+   * @param player the player placing the piece
+   * @return the number of that cell, or -1 if there is none
+   */
+  private int nextLegal(int from, Player player) {
+    for (int cell = frontier.nextSetBit(from); cell >= 0; cell = frontier.nextSetBit(cell + 1)) {
+      if (isLegal(cell, player)) {
+        return cell;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Fills the given list with the valid moves of the player to move, in row order.
+   *
+   * @param moves the list to fill
+   */
+  @Override
+  public void getValidMoves(MoveList moves) {
+    moves.clear();
+    for (int cell = nextLegal(0, currentPlayer); cell >= 0;
+         cell = nextLegal(cell + 1, currentPlayer)) {
+      moves.add(cell);
+    }
+  }
+
+  /**
+   * Finds every legal move of the player to move with the number of pieces it flips.
+   *
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of legal moves written to the buffers
+   */
+  @Override
+  public int getMoveFlipCounts(int[] moves, int[] flipCounts) {
+    int count = 0;
+    for (int cell = frontier.nextSetBit(0); cell >= 0; cell = frontier.nextSetBit(cell + 1)) {
+      int flipped = 0;
+      for (int dir = 0; dir < HexTopology.DIRECTIONS; dir++) {
+        flipped += flipsInDirection(cell, dir, currentPlayer);
+      }
+      if (flipped > 0) {
+        moves[count] = cell;
+        flipCounts[count] = flipped;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Determines whether the given player would flip anything from the given cell.
+   *
+   * @param cell   the topology index of the cell
+   * @param player the player placing the piece
+   * @return whether a piece there flips in at least one direction
+   */
+  private boolean isLegal(int cell, Player player) {
+    for (int dir = 0; dir < HexTopology.DIRECTIONS; dir++) {
+      if (flipsInDirection(cell, dir, player) > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines whether the player to move could place a piece at the given cell.
+   * Like {@link BasicReversi#isValidMoves(int, int)} this does not check that the cell is empty.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return valid move for given cell
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  @Override
+  public boolean isValidMoves(int q, int r) {
+    validInput(q, r);
+    return isLegal(topology.index(q, r), currentPlayer);
+  }
+
+  /**
+   * Determines whether the player to move could place a piece on the cell with the given
+   * number.
+   *
+   * @param cell the number of the cell in row order
+   * @return whether the move is valid
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  @Override
+  public boolean isValidMoves(int cell) {
+    return getPieceAt(cell) == null && isLegal(cell, currentPlayer);
+  }
+
+  /**
+   * Returns the number in row order of the cell at the given coordinates.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the number of that cell
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  @Override
+  public int getCellIndex(int q, int r) {
+    validInput(q, r);
+    return topology.index(q, r);
+  }
+
+  /**
+   * Returns a detached copy of the cell at the given coordinate.
+   *
+   * @param q the q coordinate
+   * @param r the r coordinate
+   * @return the hex cell at the given coordinates
+   * @throws IllegalArgumentException if the coordinates are not on the board
+   */
+  @Override
+  public HexCell findCell(int q, int r) {
+    validInput(q, r);
+    HexCell cell = new HexCell(q, r);
+    cell.setPiece(pieceAt(topology.index(q, r)));
+    return cell;
+  }
+
+  /**
+   * Returns the Zobrist key of this position.
+   *
+   * @return the key of this position
+   */
+  @Override
+  public long getPositionKey() {
+    return currentPlayer == Player.X ? pieceKey ^ topology.sideKey() : pieceKey;
+  }
+}
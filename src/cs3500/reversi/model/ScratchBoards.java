@@ -0,0 +1,79 @@
+package cs3500.reversi.model;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lends reusable boards to strategies that simulate moves, so a search does not build a new
+ * game for every candidate move. Each thread has its own pool, so borrowing never locks and a
+ * board is only ever used by the thread that borrowed it. A borrowed board is overwritten with
+ * {@link BasicReversi#copyFrom(ReadOnlyReversi)}, and nested simulations can borrow several
+ * boards at once. A board should be released in a finally block once the simulation is done,
+ * must not be used after that, and must not be given listeners.
+ */
+public final class ScratchBoards {
+
+  /**
+   * The most boards of one size a thread keeps for reuse.
+   */
+  static final int MAX_POOLED = 16;
+
+  private static final ThreadLocal<Map<Integer, ArrayDeque<BasicReversi>>> POOLS =
+          ThreadLocal.withInitial(HashMap::new);
+
+  private ScratchBoards() {
+  }
+
+  /**
+   * Borrows a board holding a copy of the given game, reusing a released board of the same
+   * size when this thread has one.
+   *
+   * @param source the game to copy
+   * @return a board in the same state as the source
+   * @throws IllegalStateException if the source has not started
+   */
+  public static BasicReversi borrow(ReadOnlyReversi source) {
+    BasicReversi board = pool(source.getRows()).poll();
+    if (board == null) {
+      board = new BasicReversi(source.getRows());
+    }
+    try {
+      board.copyFrom(source);
+    } catch (RuntimeException e) {
+      release(board);
+      throw e;
+    }
+    return board;
+  }
+
+  /**
+   * Returns a borrowed board to this thread's pool. Boards beyond what the pool keeps are
+   * dropped. A board that is already back in the pool is rejected, since pooling it twice
+   * would lend the same board to two callers.
+   *
+   * @param board the board to return
+   * @throws IllegalStateException if the board is already in this thread's pool
+   */
+  public static void release(BasicReversi board) {
+    ArrayDeque<BasicReversi> pool = pool(board.getRows());
+    for (BasicReversi pooled : pool) {
+      if (pooled == board) {
+        throw new IllegalStateException("Board already released");
+      }
+    }
+    if (pool.size() < MAX_POOLED) {
+      pool.push(board);
+    }
+  }
+
+  /**
+   * Returns this thread's pool of boards with the given number of rows.
+   *
+   * @param rows the number of rows
+   * @return the pool
+   */
+  private static ArrayDeque<BasicReversi> pool(int rows) {
+    return POOLS.get().computeIfAbsent(rows, size -> new ArrayDeque<>());
+  }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import cs3500.reversi.model.AxialCoordinate;
 import cs3500.reversi.model.HexCell;
+import cs3500.reversi.model.Player;
 import cs3500.reversi.model.Reversi;
 
 /**
@@ -101,7 +102,7 @@ public class AdapterRoReversiModel implements ROReversiModel {
    */
   @Override
   public boolean isValidMove(int q, int r, DiscColor color) {
-    return model.isValidMoves(q,r);
+    return model.isValidMove(q, r, toPlayer(color));
   }
 
   /**
@@ -111,7 +112,22 @@ public class AdapterRoReversiModel implements ROReversiModel {
    */
   @Override
   public boolean doesValidMoveExist(DiscColor color) {
-    return !model.getValidMoves().isEmpty();
+    Player player = toPlayer(color);
+    if (player == model.getCurrentPlayer()) {
+      return model.hasValidMove();
+    }
+    return !model.getValidMoves(player).isEmpty();
+  }
+
+  /**
+   * Converts the provider's disc color to our player. White discs are O and black discs
+   * are X, matching {@link AdapterGameDisc}.
+   *
+   * @param color the disc color
+   * @return the matching player
+   */
+  private static Player toPlayer(DiscColor color) {
+    return color == DiscColor.WHITE ? Player.O : Player.X;
   }
 
   /**
@@ -130,7 +146,7 @@ public class AdapterRoReversiModel implements ROReversiModel {
    */
   @Override
   public List<Tile> getPossibleMoves(DiscColor color) {
-    List<AxialCoordinate> coordinates = model.getValidMoves();
+    List<AxialCoordinate> coordinates = model.getValidMoves(toPlayer(color));
     List<Tile> tiles = new ArrayList<>();
     for (AxialCoordinate coord : coordinates) {
       tiles.add(new AdapterTile(model.findCell(coord.getQ(), coord.getR())));
@@ -148,7 +164,7 @@ public class AdapterRoReversiModel implements ROReversiModel {
    */
   @Override
   public List<Tile> getDiscsToFlip(int q, int r, DiscColor color) {
-    List<HexCell> collected = model.collectFlips(q, r);
+    List<HexCell> collected = model.collectFlips(q, r, toPlayer(color));
     List<Tile> tiles = new ArrayList<>();
     for (HexCell cell : collected) {
       tiles.add(new AdapterTile(cell));
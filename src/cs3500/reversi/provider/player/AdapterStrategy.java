@@ -37,6 +37,6 @@ public class AdapterStrategy implements FallibleReversiStrategy {
   @Override
   public Optional<AxialCoordinate> chooseMove(ReadOnlyReversi model, Player player) {
     Optional<Coordinate> coords = strat.chooseMove(RorModel);
-    return Optional.of(new AxialCoordinate(coords.get().getQ(), coords.get().getR()));
+    return Optional.of(AxialCoordinate.of(coords.get().getQ(), coords.get().getR()));
   }
 }
@@ -122,7 +122,9 @@ public class Controller implements ViewFeatures, Observer,
       player.myTurn();
     }
     this.view.advance();
-    if (model.getCurrentPlayer().toString().equals("O")) {
+    if (model.isGameOver()) {
+      this.view.setTitle("Reversi: Game Over");
+    } else if (model.getCurrentPlayer().toString().equals("O")) {
       this.view.setTitle("Reversi: White's Turn |\n"
               + " White: " + model.getScore(Player.O) + "   Black: " + model.getScore(Player.X));
     } else {
@@ -19,6 +19,7 @@ import java.util.Objects;
 import javax.swing.JPanel;
 import javax.swing.event.MouseInputAdapter;
 
+import cs3500.reversi.model.AxialCoordinate;
 import cs3500.reversi.model.HexCell;
 import cs3500.reversi.model.Player;
 import cs3500.reversi.model.ReadOnlyReversi;
@@ -33,7 +34,7 @@ public class JReversiPanel extends JPanel {
 
   private final ReadOnlyReversi model;
 
-  private Map<HexCell, Point> centers;
+  private Map<AxialCoordinate, Point> centers;
 
   /**
    * We'll allow an arbitrary number of listeners for our events...even if
@@ -41,7 +42,7 @@ public class JReversiPanel extends JPanel {
    */
   private final List<ViewFeatures> featuresListeners;
 
-  private HexCell selected;
+  private AxialCoordinate selected;
 
   /**
    * Constructs a JReversiPanel with the given Reversi model.
@@ -137,6 +138,8 @@ public class JReversiPanel extends JPanel {
 
   /**
    * Overidden paintComponent method. Paints the component, rendering the Reversi game board.
+   * The board is read cell by cell in row order through the model's indexed accessors, so
+   * painting neither copies the board nor builds a cell per hexagon.
    *
    * @param g The graphics context.
    */
@@ -151,44 +154,48 @@ public class JReversiPanel extends JPanel {
     int maxSize = Math.min(getWidth(), getHeight());
     // Calculate the size of each hexagon based on the number of rows and columns
     int sideLength = (int) (maxSize / (1.5 * Math.sqrt(3) * model.getRows()));
-    int length = (int) Math.ceil((double) model.getRows() / 2);
     int y = 90;
-    for (int i = 0; i < length; i++) {
-      y += (3.0 / 2.0) * sideLength * Math.sqrt(3.0) * 0.57;
-      HexCell[] array = model.getBoard().get(i);
-      makingHexagonsAndPieces(g2d, sideLength, y, array);
-    }
-    for (int i = 1; i <= length - 1; i++) {
-      y += (3.0 / 2.0) * sideLength * Math.sqrt(3.0) * 0.57;
-      HexCell[] array = model.getBoard().get(length + i - 1);
-      makingHexagonsAndPieces(g2d, sideLength, y, array);
+    int row = Integer.MIN_VALUE;
+    int count = model.getCellCount();
+    for (int i = 0; i < count; i++) {
+      AxialCoordinate coord = model.getCoordAt(i);
+      if (coord.getR() != row) {
+        row = coord.getR();
+        y += (3.0 / 2.0) * sideLength * Math.sqrt(3.0) * 0.57;
+      }
+      makingHexagonAndPiece(g2d, sideLength, y, coord, model.getPieceAt(i));
     }
   }
 
   /**
-   * Draws hexagons and corresponding pieces on the graphics context for a given row.
+   * Draws a hexagon and its piece on the graphics context for a given cell.
+   * The center of each cell is kept between paints and only moved when the panel is resized.
    *
    * @param g2d        The graphics context.
    * @param sideLength The length of the hexagon's sides.
    * @param y          The y-coordinate of the row.
-   * @param array      An array of HexCells representing the row.
+   * @param coord      The coordinate of the cell to draw.
+   * @param piece      The piece on the cell, or null if it is empty.
    */
-  private void makingHexagonsAndPieces(Graphics2D g2d, int sideLength, int y, HexCell[] array) {
-    for (HexCell cell : array) {
-      int x = ((sideLength + 7) * model.getRows()) + axialToXCoordinate(sideLength, cell);
-      Point center = new Point(x, y);
-      if (selected != null && cell.equals(selected)) {
-        drawHexagon(g2d, x, y, sideLength, Color.CYAN);
-        continue;
-      }
-      centers.put(cell, center);
-      drawHexagon(g2d, x, y, sideLength, Color.GRAY);
-      if (cell.getPiece() != null) {
-        if (cell.getPiece() == Player.O) {
-          drawCircle(g2d, x, y, (int) (Math.sqrt(3)) * (sideLength / 2), Color.white);
-        } else {
-          drawCircle(g2d, x, y, (int) (Math.sqrt(3)) * (sideLength / 2), Color.black);
-        }
+  private void makingHexagonAndPiece(Graphics2D g2d, int sideLength, int y,
+                                     AxialCoordinate coord, Player piece) {
+    int x = ((sideLength + 7) * model.getRows()) + axialToXCoordinate(sideLength, coord);
+    if (coord.equals(selected)) {
+      drawHexagon(g2d, x, y, sideLength, Color.CYAN);
+      return;
+    }
+    Point center = centers.get(coord);
+    if (center == null) {
+      centers.put(coord, new Point(x, y));
+    } else {
+      center.setLocation(x, y);
+    }
+    drawHexagon(g2d, x, y, sideLength, Color.GRAY);
+    if (piece != null) {
+      if (piece == Player.O) {
+        drawCircle(g2d, x, y, (int) (Math.sqrt(3)) * (sideLength / 2), Color.white);
+      } else {
+        drawCircle(g2d, x, y, (int) (Math.sqrt(3)) * (sideLength / 2), Color.black);
       }
     }
   }
@@ -197,11 +204,11 @@ public class JReversiPanel extends JPanel {
    * Converts axial coordinates to computer graphic x-coordinate for rendering hexagons.
    *
    * @param sideLength The length of the hexagon's sides.
-   * @param cell       The HexCell with axial coordinates.
+   * @param coord      The axial coordinates of the cell.
    * @return The x-coordinate for rendering the hexagon.
    */
-  private static int axialToXCoordinate(int sideLength, HexCell cell) {
-    return (int) (sideLength * (Math.sqrt(3) * cell.getQ() + Math.sqrt(3) / 2 * cell.getR()));
+  private static int axialToXCoordinate(int sideLength, AxialCoordinate coord) {
+    return (int) (sideLength * (Math.sqrt(3) * coord.getQ() + Math.sqrt(3) / 2 * coord.getR()));
   }
 
   /**
@@ -226,8 +233,8 @@ public class JReversiPanel extends JPanel {
       // Use (sqrt(3)/2) times the side length for yRange
       boolean inRange = false;
 
-      for (Map.Entry<HexCell, Point> entry : centers.entrySet()) {
-        HexCell cell = entry.getKey();
+      for (Map.Entry<AxialCoordinate, Point> entry : centers.entrySet()) {
+        AxialCoordinate cell = entry.getKey();
         Point curr = entry.getValue();
         double xDistance = Math.abs(physicalP.getX() - curr.getX());
         double yDistance = Math.abs(physicalP.getY() - curr.getY());
@@ -235,7 +242,7 @@ public class JReversiPanel extends JPanel {
         if (xDistance <= xRange && yDistance <= yRange) {
           System.out.println(cell.getQ() + ", " + cell.getR());
           if (!cell.equals(selected)) {
-            if (cell.getPiece() == null) {
+            if (model.getPieceAt(model.getCellIndex(cell.getQ(), cell.getR())) == null) {
               selected = cell;
               inRange = true;
             }
@@ -274,7 +281,7 @@ public class JReversiPanel extends JPanel {
       } else if (e.getKeyChar() == 'm') {
         for (ViewFeatures listener : JReversiPanel.this.featuresListeners) {
           if (selected != null) {
-            listener.movePiece(selected);
+            listener.movePiece(new HexCell(selected.getQ(), selected.getR()));
             selected = null;
           }
         }
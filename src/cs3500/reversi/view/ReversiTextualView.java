@@ -1,41 +1,51 @@
 package cs3500.reversi.view;
 
-import cs3500.reversi.model.HexCell;
-import cs3500.reversi.model.Reversi;
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.ReadOnlyReversi;
 
 /**
  * A simple text-based rendering of the game board for a BasicReversi game.
  */
 public class ReversiTextualView implements TextualView {
-  private final Reversi reversi;
+  private final ReadOnlyReversi reversi;
 
-  public ReversiTextualView(Reversi reversi) {
+  public ReversiTextualView(ReadOnlyReversi reversi) {
     this.reversi = reversi;
   }
 
   /**
    * Displays the Reversi Model as a formatted string.
+   * Walks the cells in row order through the model's piece and coordinate accessors, so
+   * neither the board nor its cells are copied. A new row starts whenever the r coordinate
+   * changes.
    * Overrides built-in toString.
    */
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < reversi.getRows(); i++) {
-      HexCell[] array = reversi.getBoard().get(i);
-      for (int j = 0; j < reversi.getRows() - array.length; j++) {
-        sb.append(" ");
-      }
-      for (int k = 0; k < array.length; k++) {
-        if (array[k].getPiece() != null) {
-          sb.append(array[k].getPiece().toString());
+    int count = reversi.getCellCount();
+    int row = Integer.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      AxialCoordinate coord = reversi.getCoordAt(i);
+      Player piece = reversi.getPieceAt(i);
+      if (coord.getR() != row) {
+        if (i != 0) {
+          sb.append("\n");
+        }
+        row = coord.getR();
+        for (int j = 0; j < Math.abs(row); j++) {
           sb.append(" ");
-          continue;
         }
+      }
+      if (piece != null) {
+        sb.append(piece.toString());
+      } else {
         sb.append("_");
-        sb.append(" ");
       }
-      sb.append("\n");
+      sb.append(" ");
     }
+    sb.append("\n");
     return sb.toString();
   }
-}
\ No newline at end of file
+}
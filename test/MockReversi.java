@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import cs3500.reversi.model.AxialCoordinate;
 import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.HexCell;
 
 /**
  * A mock implementation of the {@link BasicReversi} class for testing purposes.
@@ -57,6 +58,58 @@ public class MockReversi extends BasicReversi {
     return false;
   }
 
+  /**
+   * Asks isValidMoves about every empty cell instead of reading the model's legal move sets,
+   * so strategies see the cells this mock reports as valid.
+   *
+   * @return the empty cells accepted by isValidMoves
+   */
+  @Override
+  public List<AxialCoordinate> getValidMoves() {
+    List<AxialCoordinate> moves = new ArrayList<>();
+    for (int row = 0; row < getRows(); row++) {
+      for (HexCell cell : getBoard().get(row)) {
+        if (cell.getPiece() == null && isValidMoves(cell.getQ(), cell.getR())) {
+          moves.add(cell.coord);
+        }
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Reports whether getValidMoves found any move, so players see the same answer as
+   * strategies.
+   *
+   * @return whether the mock reports a valid move
+   */
+  @Override
+  public boolean hasValidMove() {
+    return !getValidMoves().isEmpty();
+  }
+
+  /**
+   * Asks isValidMoves about every empty cell, like getValidMoves, and counts the flips of
+   * each accepted cell with collectFlips.
+   *
+   * @param moves      the buffer for the cell number of each move
+   * @param flipCounts the buffer for the number of pieces each move flips
+   * @return the number of moves accepted by isValidMoves
+   */
+  @Override
+  public int getMoveFlipCounts(int[] moves, int[] flipCounts) {
+    int count = 0;
+    for (int i = 0; i < getCellCount(); i++) {
+      HexCell cell = getCellAt(i);
+      if (cell.getPiece() == null && isValidMoves(cell.getQ(), cell.getR())) {
+        moves[count] = i;
+        flipCounts[count] = collectFlips(cell.getQ(), cell.getR()).size();
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Overrides the method to set the score to 10 if the specified coordinates are (0, -1).
    * Sets the log to the move made.
@@ -0,0 +1,89 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.BatchBoards;
+import cs3500.reversi.model.BitboardReversi;
+import cs3500.reversi.model.MoveList;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.Reversi;
+
+/**
+ * This class contains JUnit tests for BatchBoards, checking it evaluates a batch of positions
+ * the same way the model evaluates each one.
+ */
+public class TestBatchBoards {
+
+  @Test
+  public void testMatchesModel() {
+    Random rand = new Random(2500);
+    for (int rows = 5; rows <= 9; rows += 2) {
+      BatchBoards batch = new BatchBoards(rows, 400);
+      List<Reversi> positions = new ArrayList<>();
+      while (batch.getSize() < 300) {
+        Reversi game = new BitboardReversi(rows);
+        game.startGame();
+        while (!game.isGameOver() && batch.getSize() < 300) {
+          Reversi copy = new BitboardReversi((BitboardReversi) game);
+          Assert.assertEquals(positions.size(), batch.add(copy));
+          positions.add(copy);
+          List<AxialCoordinate> moves = game.getValidMoves();
+          if (moves.isEmpty()) {
+            game.passMove();
+          } else {
+            AxialCoordinate move = moves.get(rand.nextInt(moves.size()));
+            game.movePiece(move.getQ(), move.getR());
+          }
+        }
+      }
+      Assert.assertThrows(IllegalStateException.class, () -> batch.getScore(0, Player.X));
+      batch.evaluate();
+      int cells = positions.get(0).getCellCount();
+      int[] moves = new int[cells];
+      int[] flips = new int[cells];
+      int[] expectedMoves = new int[cells];
+      int[] expectedFlips = new int[cells];
+      MoveList list = new MoveList();
+      MoveList expectedList = new MoveList();
+      for (int handle = 0; handle < positions.size(); handle++) {
+        Reversi position = positions.get(handle);
+        int count = position.getMoveFlipCounts(expectedMoves, expectedFlips);
+        Assert.assertEquals(count, batch.getMoveFlipCounts(handle, moves, flips));
+        for (int i = 0; i < count; i++) {
+          Assert.assertEquals(expectedMoves[i], moves[i]);
+          Assert.assertEquals(expectedFlips[i], flips[i]);
+        }
+        position.getValidMoves(expectedList);
+        batch.getValidMoves(handle, list);
+        Assert.assertArrayEquals(expectedList.toArray(), list.toArray());
+        Assert.assertEquals(position.getScore(Player.X), batch.getScore(handle, Player.X));
+        Assert.assertEquals(position.getScore(Player.O), batch.getScore(handle, Player.O));
+        Assert.assertEquals(position.getCurrentPlayer(), batch.getCurrentPlayer(handle));
+      }
+      Assert.assertThrows(IllegalArgumentException.class, () -> batch.getCurrentPlayer(300));
+      batch.clear();
+      Assert.assertEquals(0, batch.getSize());
+      Assert.assertThrows(IllegalArgumentException.class, () -> batch.getScore(0, Player.X));
+    }
+  }
+
+  @Test
+  public void testAddRejectsInvalidGames() {
+    BatchBoards small = new BatchBoards(7, 1);
+    BasicReversi basic = new BasicReversi(7);
+    Assert.assertThrows(IllegalStateException.class, () -> small.add(basic));
+    basic.startGame();
+    Assert.assertEquals(0, small.add(basic));
+    Assert.assertThrows(IllegalStateException.class, () -> small.add(basic));
+    Assert.assertThrows(IllegalArgumentException.class, () -> small.add(new BasicReversi(5)));
+    Assert.assertThrows(IllegalArgumentException.class, () -> new BatchBoards(11, 1));
+    Assert.assertEquals("Invalid size", Assert.assertThrows(IllegalArgumentException.class,
+            () -> new BatchBoards(6, 1)).getMessage());
+    Assert.assertThrows(IllegalArgumentException.class, () -> new BatchBoards(7, 0));
+  }
+}
@@ -0,0 +1,237 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.BitboardReversi;
+import cs3500.reversi.model.HexCell;
+import cs3500.reversi.model.MoveList;
+import cs3500.reversi.model.MoveRecord;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.Reversi;
+import cs3500.reversi.view.ReversiTextualView;
+
+/**
+ * This class contains JUnit tests for the BitboardReversi model, checking it plays the same
+ * games as BasicReversi.
+ */
+public class TestBitboardReversi {
+  BitboardReversi rev;
+
+  @Before
+  public void init() {
+    this.rev = new BitboardReversi(7);
+  }
+
+  @Test
+  public void testStartGame() {
+    BitboardReversi game1 = new BitboardReversi(9);
+    rev.startGame();
+    game1.startGame();
+    Assert.assertEquals(rev.getBoard().keySet().size(), 7);
+    Assert.assertEquals(game1.getBoard().keySet().size(), 9);
+    Assert.assertThrows(IllegalStateException.class, () -> rev.startGame());
+    Assert.assertThrows(IllegalArgumentException.class, () -> new BitboardReversi(4));
+    Assert.assertThrows(IllegalArgumentException.class, () -> new BitboardReversi(6));
+    Assert.assertEquals("Board too large for a bitboard",
+            Assert.assertThrows(IllegalArgumentException.class,
+                () -> new BitboardReversi(11)).getMessage());
+  }
+
+  @Test
+  public void testMovePiece() {
+    rev.startGame();
+    rev.movePiece(-1, -1);
+    rev.movePiece(-1, -2);
+    rev.movePiece(-2, -1);
+    rev.movePiece(1, -2);
+    rev.movePiece(2, -1);
+    rev.movePiece(1, 1);
+    rev.movePiece(-1, 2);
+    rev.movePiece(-2, 1);
+    Assert.assertEquals(rev.getScore(Player.O), 5);
+    Assert.assertEquals(rev.getScore(Player.X), 9);
+    Assert.assertEquals(rev.getValidMoves().size(), 3);
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.movePiece(3, 1));
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.movePiece(1, 3));
+    Assert.assertThrows(IllegalStateException.class, () -> rev.movePiece(0, 0));
+    Assert.assertThrows(IllegalStateException.class, () -> rev.movePiece(1, 0));
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.movePiece(100, 1));
+  }
+
+  @Test
+  public void testPassMove() {
+    Assert.assertThrows(IllegalStateException.class, () -> rev.passMove());
+    rev.startGame();
+    rev.movePiece(-1, -1);
+    rev.passMove();
+    rev.passMove();
+    Assert.assertTrue(rev.isGameOver());
+    Assert.assertThrows(IllegalStateException.class, () -> rev.passMove());
+    Assert.assertThrows(IllegalStateException.class, () -> rev.movePiece(0, 0));
+  }
+
+  @Test
+  public void testFindCellIsDetached() {
+    rev.startGame();
+    HexCell cell = rev.findCell(0, -1);
+    Assert.assertEquals(cell.getPiece(), Player.X);
+    cell.setPiece(Player.O);
+    Assert.assertEquals(rev.findCell(0, -1).getPiece(), Player.X);
+  }
+
+  /**
+   * Plays random games on both models side by side for every board size they share, runs
+   * the check on each position before the move, and checks the boards stay equal.
+   *
+   * @param seed  the seed of the random moves
+   * @param check the check to run on the BasicReversi and BitboardReversi of each position
+   */
+  private static void playSideBySide(long seed, BiConsumer<Reversi, Reversi> check) {
+    Random rand = new Random(seed);
+    for (int rows = 5; rows <= 9; rows += 2) {
+      for (int game = 0; game < 20; game++) {
+        Reversi basic = new BasicReversi(rows);
+        Reversi bits = new BitboardReversi(rows);
+        basic.startGame();
+        bits.startGame();
+        while (!basic.isGameOver()) {
+          check.accept(basic, bits);
+          List<AxialCoordinate> moves = basic.getValidMoves();
+          if (moves.isEmpty()) {
+            basic.passMove();
+            bits.passMove();
+            continue;
+          }
+          AxialCoordinate move = moves.get(rand.nextInt(moves.size()));
+          basic.movePiece(move.getQ(), move.getR());
+          bits.movePiece(bits.getCellIndex(move.getQ(), move.getR()));
+          Assert.assertEquals(new ReversiTextualView(basic).toString(),
+                  new ReversiTextualView(bits).toString());
+        }
+        Assert.assertTrue(bits.isGameOver());
+      }
+    }
+  }
+
+  @Test
+  public void testMatchesBasicReversi() {
+    playSideBySide(3500, (basic, bits) -> {
+      List<AxialCoordinate> moves = basic.getValidMoves();
+      Assert.assertEquals(moves, bits.getValidMoves());
+      Assert.assertEquals(basic.getScore(Player.X), bits.getScore(Player.X));
+      Assert.assertEquals(basic.getScore(Player.O), bits.getScore(Player.O));
+      for (AxialCoordinate move : moves) {
+        Assert.assertEquals(basic.collectFlips(move.getQ(), move.getR()),
+                bits.collectFlips(move.getQ(), move.getR()));
+      }
+    });
+  }
+
+  @Test
+  public void testPositionKeysMatch() {
+    playSideBySide(3501, (basic, bits) ->
+            Assert.assertEquals(basic.getPositionKey(), bits.getPositionKey()));
+  }
+
+  @Test
+  public void testHasValidMoveAndIteratorMatch() {
+    playSideBySide(3502, (basic, bits) -> {
+      List<AxialCoordinate> moves = basic.getValidMoves();
+      Assert.assertEquals(!moves.isEmpty(), basic.hasValidMove());
+      Assert.assertEquals(!moves.isEmpty(), bits.hasValidMove());
+      Iterator<AxialCoordinate> basicIter = basic.validMoveIterator();
+      Iterator<AxialCoordinate> bitsIter = bits.validMoveIterator();
+      for (AxialCoordinate expected : moves) {
+        Assert.assertSame(expected, basicIter.next());
+        Assert.assertSame(expected, bitsIter.next());
+      }
+      Assert.assertFalse(basicIter.hasNext());
+      Assert.assertFalse(bitsIter.hasNext());
+    });
+  }
+
+  @Test
+  public void testMoveFlipCountsMatch() {
+    playSideBySide(3503, (basic, bits) -> {
+      int[] basicMoves = new int[basic.getCellCount()];
+      int[] basicFlips = new int[basic.getCellCount()];
+      int[] bitsMoves = new int[bits.getCellCount()];
+      int[] bitsFlips = new int[bits.getCellCount()];
+      int count = basic.getMoveFlipCounts(basicMoves, basicFlips);
+      Assert.assertEquals(basic.getValidMoves().size(), count);
+      Assert.assertEquals(count, bits.getMoveFlipCounts(bitsMoves, bitsFlips));
+      Assert.assertArrayEquals(basicMoves, bitsMoves);
+      Assert.assertArrayEquals(basicFlips, bitsFlips);
+      for (int i = 0; i < count; i++) {
+        AxialCoordinate coord = basic.getCoordAt(basicMoves[i]);
+        Assert.assertEquals(basicFlips[i], basic.collectFlips(coord.getQ(), coord.getR()).size());
+      }
+    });
+  }
+
+  @Test
+  public void testPackedMovesMatch() {
+    playSideBySide(3504, (basic, bits) -> {
+      int[] basicMoves = new int[basic.getCellCount()];
+      int count = basic.getMoveFlipCounts(basicMoves, new int[basic.getCellCount()]);
+      MoveList packed = new MoveList();
+      bits.getValidMoves(packed);
+      Assert.assertArrayEquals(Arrays.copyOf(basicMoves, count), packed.toArray());
+    });
+  }
+
+  @Test
+  public void testMovesForWaitingPlayerMatch() {
+    playSideBySide(3505, (basic, bits) -> {
+      Player waiting = basic.getCurrentPlayer() == Player.X ? Player.O : Player.X;
+      List<AxialCoordinate> waitingMoves = basic.getValidMoves(waiting);
+      Assert.assertEquals(waitingMoves, bits.getValidMoves(waiting));
+      for (AxialCoordinate coord : waitingMoves) {
+        Assert.assertTrue(bits.isValidMove(coord.getQ(), coord.getR(), waiting));
+        Assert.assertEquals(basic.collectFlips(coord.getQ(), coord.getR(), waiting),
+                bits.collectFlips(coord.getQ(), coord.getR(), waiting));
+      }
+    });
+  }
+
+  @Test
+  public void testUnmakeRestoresBothModels() {
+    Random rand = new Random(2024);
+    Reversi[] models = {new BasicReversi(9), new BitboardReversi(9)};
+    for (Reversi model : models) {
+      model.startGame();
+      String start = new ReversiTextualView(model).toString();
+      long startKey = model.getPositionKey();
+      List<AxialCoordinate> startMoves = model.getValidMoves();
+      Deque<MoveRecord> played = new ArrayDeque<>();
+      while (!model.isGameOver()) {
+        List<AxialCoordinate> moves = model.getValidMoves();
+        if (moves.isEmpty()) {
+          played.push(model.makePass());
+          continue;
+        }
+        AxialCoordinate move = moves.get(rand.nextInt(moves.size()));
+        played.push(model.makeMove(move.getQ(), move.getR()));
+      }
+      while (!played.isEmpty()) {
+        model.unmakeMove(played.pop());
+      }
+      Assert.assertFalse(model.isGameOver());
+      Assert.assertEquals(start, new ReversiTextualView(model).toString());
+      Assert.assertEquals(startMoves, model.getValidMoves());
+      Assert.assertEquals(startKey, model.getPositionKey());
+      Assert.assertEquals(model.getCurrentPlayer(), Player.O);
+      Assert.assertEquals(model.getScore(Player.X), 3);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.HexCell;
+import cs3500.reversi.model.MoveCache;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.ReversiPosition;
+
+/**
+ * This class contains JUnit tests for BasicReversi in concurrent mode, reading the game from
+ * other threads while moves are applied.
+ */
+public class TestConcurrentReversi {
+
+  @Test
+  public void testReadersOnlySeeWholeMoves() throws InterruptedException {
+    Set<Long> reached = ConcurrentHashMap.newKeySet();
+    MoveCache cache = new MoveCache(1 << 12);
+    AtomicReference<BasicReversi> live = new AtomicReference<>();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] readers = new Thread[2];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        try {
+          while (!Thread.currentThread().isInterrupted()) {
+            BasicReversi model = live.get();
+            if (model == null) {
+              continue;
+            }
+            ReversiPosition position = model.snapshot();
+            Assert.assertTrue(reached.contains(position.getPositionKey()));
+            Assert.assertTrue(reached.contains(model.getPositionKey()));
+            int pieces = 0;
+            for (HexCell[] row : model.getBoard().values()) {
+              for (HexCell cell : row) {
+                pieces += cell.getPiece() == null ? 0 : 1;
+              }
+            }
+            Assert.assertTrue(pieces >= 6);
+            int[] moves = new int[model.getCellCount()];
+            int[] flips = new int[model.getCellCount()];
+            int count = model.getMoveFlipCounts(moves, flips);
+            for (int j = 0; j < count; j++) {
+              Assert.assertTrue(flips[j] > 0);
+            }
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      });
+      readers[i].start();
+    }
+    Random random = new Random(20);
+    for (int game = 0; game < 20 && failure.get() == null; game++) {
+      BasicReversi model = new BasicReversi(7, true);
+      BasicReversi shadow = new BasicReversi(7);
+      model.setMoveCache(cache);
+      model.startGame();
+      shadow.startGame();
+      reached.add(shadow.getPositionKey());
+      live.set(model);
+      while (!shadow.isGameOver()) {
+        int[] expectedMoves = new int[shadow.getCellCount()];
+        int[] expectedFlips = new int[shadow.getCellCount()];
+        int[] cachedMoves = new int[model.getCellCount()];
+        int[] cachedFlips = new int[model.getCellCount()];
+        int count = shadow.getMoveFlipCounts(expectedMoves, expectedFlips);
+        Assert.assertEquals(count, model.getMoveFlipCounts(cachedMoves, cachedFlips));
+        Assert.assertArrayEquals(expectedMoves, cachedMoves);
+        Assert.assertArrayEquals(expectedFlips, cachedFlips);
+        List<AxialCoordinate> moves = shadow.getValidMoves();
+        if (moves.isEmpty()) {
+          shadow.passMove();
+          reached.add(shadow.getPositionKey());
+          model.passMove();
+          continue;
+        }
+        AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+        shadow.movePiece(move.getQ(), move.getR());
+        reached.add(shadow.getPositionKey());
+        model.movePiece(move.getQ(), move.getR());
+      }
+      Assert.assertTrue(model.isGameOver());
+      Assert.assertEquals(shadow.getPositionKey(), model.getPositionKey());
+    }
+    for (Thread reader : readers) {
+      reader.interrupt();
+      reader.join();
+    }
+    Assert.assertNull(failure.get());
+  }
+
+  @Test
+  public void testCellsAreCopies() {
+    BasicReversi model = new BasicReversi(7, true);
+    model.startGame();
+    HexCell cell = model.findCell(-1, -1);
+    model.movePiece(-1, -1);
+    Assert.assertNull(cell.getPiece());
+    Assert.assertEquals(Player.O, model.getCellAt(model.getCellIndex(-1, -1)).getPiece());
+    model.getCellAt(0).setPiece(Player.X);
+    Assert.assertNull(model.getPieceAt(0));
+    BasicReversi copy = new BasicReversi(model);
+    Assert.assertEquals(model.getPositionKey(), copy.getPositionKey());
+    Assert.assertNull(copy.findCell(0, 0).getPiece());
+  }
+}
@@ -0,0 +1,118 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.HexSymmetry;
+import cs3500.reversi.model.ReversiPosition;
+
+/**
+ * This class contains JUnit tests for HexSymmetry, checking that the twelve symmetries are
+ * distinct permutations of the board and that rotated or mirrored games share one canonical
+ * form.
+ */
+public class TestHexSymmetry {
+
+  @Test
+  public void testPermutations() {
+    HexSymmetry symmetry = HexSymmetry.of(7);
+    Assert.assertSame(symmetry, HexSymmetry.of(7));
+    Set<String> images = new HashSet<>();
+    for (int sym = 0; sym < HexSymmetry.COUNT; sym++) {
+      int[] image = new int[37];
+      Set<Integer> seen = new HashSet<>();
+      for (int cell = 0; cell < 37; cell++) {
+        image[cell] = symmetry.transform(sym, cell);
+        seen.add(image[cell]);
+        int back = symmetry.transform(HexSymmetry.inverse(sym), image[cell]);
+        Assert.assertEquals(cell, back);
+      }
+      Assert.assertEquals(37, seen.size());
+      Assert.assertEquals(18, symmetry.transform(sym, 18));
+      images.add(Arrays.toString(image));
+    }
+    Assert.assertEquals(HexSymmetry.COUNT, images.size());
+    Assert.assertEquals(AxialCoordinate.of(1, 2),
+            symmetry.transform(1, AxialCoordinate.of(3, -1)));
+    Assert.assertEquals(AxialCoordinate.of(3, -2),
+            symmetry.transform(6, AxialCoordinate.of(3, -1)));
+    Assert.assertThrows(IllegalArgumentException.class, () -> symmetry.transform(12, 0));
+    Assert.assertThrows(IllegalArgumentException.class, () -> symmetry.transform(0, 37));
+    Assert.assertThrows(IllegalArgumentException.class, () -> HexSymmetry.of(6));
+  }
+
+  @Test
+  public void testEquivalentGamesShareKey() {
+    HexSymmetry symmetry = HexSymmetry.of(7);
+    BasicReversi start = new BasicReversi(7);
+    start.startGame();
+    Random random = new Random(19);
+    for (int game = 0; game < 10; game++) {
+      BasicReversi model = new BasicReversi(7);
+      model.startGame();
+      List<Integer> played = new ArrayList<>();
+      for (int ply = 0; ply < 12 && !model.isGameOver(); ply++) {
+        List<AxialCoordinate> moves = model.getValidMoves();
+        if (moves.isEmpty()) {
+          model.passMove();
+          played.add(-1);
+        } else {
+          AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+          played.add(model.getCellIndex(move.getQ(), move.getR()));
+          model.movePiece(move.getQ(), move.getR());
+        }
+      }
+      HexSymmetry.Canonical canonical = symmetry.canonicalize(model);
+      Assert.assertEquals(canonical.getKey(), canonical.getPosition().getPositionKey());
+      int images = 0;
+      for (int sym = 0; sym < HexSymmetry.COUNT; sym++) {
+        if (!keepsStart(symmetry, sym, start)) {
+          continue;
+        }
+        images++;
+        ReversiPosition image = start.snapshot();
+        for (int cell : played) {
+          if (cell < 0) {
+            image = image.pass();
+          } else {
+            AxialCoordinate coord = image.getCellAt(symmetry.transform(sym, cell)).coord;
+            image = image.play(coord.getQ(), coord.getR());
+          }
+        }
+        Assert.assertEquals(canonical.getKey(), symmetry.canonicalize(image).getKey());
+      }
+      Assert.assertEquals(6, images);
+      for (AxialCoordinate move : model.getValidMoves()) {
+        int cell = model.getCellIndex(move.getQ(), move.getR());
+        int mapped = canonical.toCanonical(cell);
+        Assert.assertTrue(canonical.getPosition().isValidMoves(mapped));
+        Assert.assertEquals(cell, canonical.fromCanonical(mapped));
+      }
+    }
+  }
+
+  /**
+   * Determines whether a symmetry maps the starting pieces onto themselves, so a game
+   * replayed through it starts from the same board.
+   *
+   * @param symmetry the symmetry tables
+   * @param sym      the symmetry index
+   * @param start    a game that has just started
+   * @return whether the starting pieces are unchanged by the symmetry
+   */
+  private static boolean keepsStart(HexSymmetry symmetry, int sym, BasicReversi start) {
+    for (int cell = 0; cell < start.getCellCount(); cell++) {
+      if (start.getPieceAt(cell) != start.getPieceAt(symmetry.transform(sym, cell))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,6 +1,8 @@
 import org.junit.Assert;
 import org.junit.Test;
 
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
 import cs3500.reversi.model.HexCell;
 import cs3500.reversi.model.Player;
 
@@ -57,4 +59,34 @@ public class TestHexcell {
     Assert.assertNotEquals(cell2, cell4);
     Assert.assertNotEquals(cell3, cell4);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSharedCoordinates() {
+    Assert.assertSame(cell1.coord, sameCell.coord);
+    Assert.assertSame(cell2.coord, new HexCell(cell2).coord);
+    Assert.assertSame(AxialCoordinate.of(-3, 2), AxialCoordinate.of(-3, 2));
+    Assert.assertEquals(AxialCoordinate.of(40, -2), AxialCoordinate.of(40, -2));
+    Assert.assertEquals(-38, AxialCoordinate.of(40, -2).getS());
+    BasicReversi game = new BasicReversi(7);
+    game.startGame();
+    for (AxialCoordinate move : game.getValidMoves()) {
+      Assert.assertSame(game.findCell(move.getQ(), move.getR()).coord, move);
+    }
+  }
+
+  @Test
+  public void testSharedCoordinatesGrowWithBoards() {
+    new BasicReversi(7);
+    AxialCoordinate before = AxialCoordinate.of(-3, 2);
+    Assert.assertSame(before, AxialCoordinate.of(-3, 2));
+    BasicReversi game = new BasicReversi(35);
+    game.startGame();
+    Assert.assertSame(AxialCoordinate.of(17, -17), AxialCoordinate.of(17, -17));
+    Assert.assertSame(game.findCell(17, -17).coord, AxialCoordinate.of(17, -17));
+    Assert.assertSame(game.getCoordAt(0), AxialCoordinate.of(0, -17));
+    Assert.assertSame(before, AxialCoordinate.of(-3, 2));
+    for (AxialCoordinate move : game.getValidMoves()) {
+      Assert.assertSame(game.findCell(move.getQ(), move.getR()).coord, move);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.BitboardReversi;
+import cs3500.reversi.model.MoveCache;
+import cs3500.reversi.model.MoveList;
+import cs3500.reversi.model.Perft;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.Reversi;
+import cs3500.reversi.model.ReversiEngine;
+import cs3500.reversi.view.ReversiTextualView;
+
+/**
+ * This class contains JUnit tests for Perft, using it to check BasicReversi and
+ * BitboardReversi generate the same game trees.
+ */
+public class TestPerft {
+
+  @Test
+  public void testShallowCounts() {
+    BasicReversi rev = new BasicReversi(7);
+    rev.startGame();
+    Assert.assertEquals(1, Perft.count(rev.engine(), 0));
+    Assert.assertEquals(6, Perft.count(rev.engine(), 1));
+    Assert.assertEquals(rev.getValidMoves().size(), Perft.count(rev.engine(), 1));
+    Assert.assertThrows(IllegalArgumentException.class, () -> Perft.count(rev.engine(), -1));
+    Assert.assertThrows(IllegalStateException.class,
+        () -> Perft.count(new BasicReversi(7).engine(), 1));
+  }
+
+  @Test
+  public void testKnownCounts() {
+    long[] expected = {1, 6, 24, 72, 234, 738, 2514};
+    BasicReversi basic = new BasicReversi(7);
+    BitboardReversi bits = new BitboardReversi(7);
+    basic.startGame();
+    bits.startGame();
+    for (int depth = 0; depth < expected.length; depth++) {
+      Assert.assertEquals(expected[depth], Perft.count(basic.engine(), depth));
+      Assert.assertEquals(expected[depth], Perft.count(bits.engine(), depth));
+    }
+  }
+
+  @Test
+  public void testKnownCountsThroughPass() {
+    // counted by a separate naive search; two lines from here force X to pass at the fourth ply
+    long[] expected = {1, 3, 4, 5, 5, 5, 5, 5};
+    BasicReversi basic = new BasicReversi(5);
+    BitboardReversi bits = new BitboardReversi(5);
+    for (Reversi game : new Reversi[] {basic, bits}) {
+      game.startGame();
+      game.movePiece(2, -1);
+      game.movePiece(1, 1);
+      Assert.assertEquals(Player.O, game.getCurrentPlayer());
+    }
+    for (int depth = 0; depth < expected.length; depth++) {
+      Assert.assertEquals(expected[depth], Perft.count(basic.engine(), depth));
+      Assert.assertEquals(expected[depth], Perft.count(bits.engine(), depth));
+    }
+  }
+
+  @Test
+  public void testModelsAgree() {
+    for (int rows = 5; rows <= 9; rows += 2) {
+      BasicReversi basic = new BasicReversi(rows);
+      BitboardReversi bits = new BitboardReversi(rows);
+      basic.startGame();
+      bits.startGame();
+      String start = new ReversiTextualView(basic).toString();
+      for (int depth = 1; depth <= 5; depth++) {
+        Perft.Result result = Perft.run(basic.engine(), depth);
+        Assert.assertEquals(result.getNodes(), Perft.count(bits.engine(), depth));
+        Assert.assertEquals(depth, result.getDepth());
+        Assert.assertTrue(result.getNodesPerSecond() >= 0);
+      }
+      Assert.assertEquals(start, new ReversiTextualView(basic).toString());
+      Assert.assertEquals(start, new ReversiTextualView(bits).toString());
+    }
+  }
+
+  @Test
+  public void testPassesAndGameEnd() {
+    BasicReversi basic = new BasicReversi(5);
+    BitboardReversi bits = new BitboardReversi(5);
+    basic.startGame();
+    bits.startGame();
+    long deep = Perft.count(basic.engine(), 20);
+    Assert.assertEquals(deep, Perft.count(bits.engine(), 20));
+    Assert.assertEquals(deep, Perft.count(basic.engine(), 25));
+    basic.passMove();
+    basic.passMove();
+    Assert.assertEquals(1, Perft.count(basic.engine(), 3));
+  }
+
+  @Test
+  public void testEngineMatchesCheckedApi() {
+    BasicReversi basic = new BasicReversi(7);
+    BitboardReversi bits = new BitboardReversi(7);
+    Assert.assertThrows(IllegalStateException.class, basic::engine);
+    Assert.assertThrows(IllegalStateException.class, bits::engine);
+    basic.startGame();
+    bits.startGame();
+    ReversiEngine[] engines = {basic.engine(), bits.engine()};
+    Reversi[] games = {basic, bits};
+    for (int g = 0; g < games.length; g++) {
+      Reversi game = games[g];
+      ReversiEngine engine = engines[g];
+      Assert.assertEquals(game.getCellCount(), engine.cellCount());
+      String start = new ReversiTextualView(game).toString();
+      MoveList checked = new MoveList();
+      MoveList unchecked = new MoveList();
+      for (int ply = 0; !engine.isOver(); ply++) {
+        game.getValidMoves(checked);
+        engine.legalMoves(unchecked);
+        Assert.assertEquals(checked.size(), unchecked.size());
+        for (int cell = 0; cell < engine.cellCount(); cell++) {
+          Assert.assertEquals(game.getPieceAt(cell), engine.pieceAt(cell));
+          Assert.assertEquals(game.isValidMoves(cell), engine.isLegal(cell));
+        }
+        Assert.assertEquals(game.getCurrentPlayer(), engine.currentPlayer());
+        Assert.assertEquals(game.getPositionKey(), engine.positionKey());
+        if (unchecked.isEmpty()) {
+          engine.pass();
+        } else {
+          engine.play(unchecked.get(ply % unchecked.size()));
+        }
+        Assert.assertEquals(ply + 1, engine.depth());
+      }
+      Assert.assertTrue(game.isGameOver());
+      Assert.assertThrows(IllegalStateException.class, game::makePass);
+      Assert.assertTrue(engine.score(Player.X) + engine.score(Player.O) > 4);
+      while (engine.depth() > 0) {
+        engine.undo();
+      }
+      Assert.assertEquals(start, new ReversiTextualView(game).toString());
+      Assert.assertThrows(IllegalStateException.class, () -> game.makeMove(0));
+    }
+  }
+
+  @Test
+  public void testNoEngineInConcurrentMode() {
+    BasicReversi shared = new BasicReversi(7, true);
+    shared.startGame();
+    Assert.assertThrows(IllegalStateException.class, shared::engine);
+    shared.movePiece(1, -2);
+    shared.passMove();
+    Assert.assertEquals(1, shared.getConsecutivePasses());
+  }
+
+  @Test
+  public void testCachedCounts() {
+    long[] expected = {1, 6, 24, 72, 234, 738, 2514};
+    BasicReversi basic = new BasicReversi(7);
+    BitboardReversi bits = new BitboardReversi(7);
+    basic.startGame();
+    bits.startGame();
+    MoveCache cache = new MoveCache(64);
+    for (int depth = 0; depth < expected.length; depth++) {
+      Assert.assertEquals(expected[depth], Perft.count(basic.engine(), depth, cache));
+      Assert.assertEquals(expected[depth], Perft.count(bits.engine(), depth, cache));
+    }
+    // lines that transpose reach the same positions one ply from the leaves
+    Assert.assertTrue(cache.getHits() > 0);
+    Assert.assertEquals(64, cache.getSize());
+  }
+}
@@ -2,8 +2,24 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import cs3500.reversi.model.AxialCoordinate;
 import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.BitboardReversi;
+import cs3500.reversi.model.HexCell;
+import cs3500.reversi.model.MoveCache;
+import cs3500.reversi.model.MoveList;
+import cs3500.reversi.model.MoveRecord;
 import cs3500.reversi.model.Player;
+import cs3500.reversi.model.Reversi;
+import cs3500.reversi.model.ReversiPosition;
+import cs3500.reversi.model.ScratchBoards;
+import cs3500.reversi.view.ReversiTextualView;
+import cs3500.reversi.view.TextualView;
 
 /**
  * This class contains JUnit tests for the ReversiExamples class, which provides example
@@ -160,4 +176,451 @@ public class TestReversi {
     rev.movePiece(-2, 1);
     Assert.assertEquals(rev.getValidMoves().size(), 3);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testMakeAndUnmakeMove() {
+    rev.startGame();
+    TextualView view = new ReversiTextualView(rev);
+    String start = view.toString();
+    MoveRecord first = rev.makeMove(-1, -1);
+    Assert.assertEquals(rev.getCurrentPlayer(), Player.X);
+    Assert.assertEquals(first.getFlipCount(), 1);
+    MoveRecord second = rev.makeMove(-1, -2);
+    MoveRecord pass = rev.makePass();
+    Assert.assertTrue(pass.isPass());
+    Assert.assertEquals(rev.getCurrentPlayer(), Player.X);
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.unmakeMove(second));
+    rev.unmakeMove(pass);
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.unmakeMove(pass));
+    rev.unmakeMove(second);
+    Assert.assertEquals(rev.getCurrentPlayer(), Player.X);
+    Assert.assertEquals(rev.getValidMoves().size(), 4);
+    rev.unmakeMove(first);
+    Assert.assertEquals(view.toString(), start);
+    Assert.assertEquals(rev.getCurrentPlayer(), Player.O);
+    Assert.assertEquals(rev.getScore(Player.O), 3);
+    Assert.assertEquals(rev.getScore(Player.X), 3);
+    Assert.assertEquals(rev.getValidMoves().size(), 6);
+    Assert.assertThrows(IllegalStateException.class, () -> rev.makeMove(0, 0));
+    rev.makePass();
+    rev.makePass();
+    Assert.assertTrue(rev.isGameOver());
+  }
+
+  @Test
+  public void testPositionKey() {
+    Assert.assertThrows(IllegalStateException.class, () -> rev.getPositionKey());
+    rev.startGame();
+    BasicReversi other = new BasicReversi(7);
+    other.startGame();
+    long start = rev.getPositionKey();
+    Assert.assertEquals(start, other.getPositionKey());
+    rev.movePiece(-1, -1);
+    Assert.assertNotEquals(start, rev.getPositionKey());
+    Assert.assertEquals(rev.getPositionKey(), new BasicReversi(rev).getPositionKey());
+    other.passMove();
+    Assert.assertNotEquals(start, other.getPositionKey());
+    BasicReversi undone = new BasicReversi(7);
+    undone.startGame();
+    undone.unmakeMove(undone.makeMove(-1, -1));
+    Assert.assertEquals(start, undone.getPositionKey());
+  }
+
+  @Test
+  public void testCollectFlipsMatchesMove() {
+    rev.startGame();
+    rev.movePiece(-1, -1);
+    rev.movePiece(-1, -2);
+    List<HexCell> flips = rev.collectFlips(-2, -1);
+    Assert.assertEquals(1, flips.size());
+    Assert.assertTrue(rev.collectFlips(0, 0).isEmpty());
+    Assert.assertTrue(rev.collectFlips(0, -1).isEmpty());
+    int before = rev.getScore(Player.O);
+    rev.movePiece(-2, -1);
+    Assert.assertEquals(before + flips.size() + 1, rev.getScore(Player.O));
+    for (HexCell cell : flips) {
+      Assert.assertEquals(Player.O, cell.getPiece());
+    }
+  }
+
+  @Test
+  public void testCellAccessors() {
+    BasicReversi game1 = new BasicReversi(5);
+    Assert.assertThrows(IllegalStateException.class, () -> game1.getCellAt(0));
+    game1.startGame();
+    Assert.assertEquals(19, game1.getCellCount());
+    Assert.assertEquals(AxialCoordinate.of(0, -2), game1.getCellAt(0).coord);
+    Assert.assertSame(game1.getCellAt(9).coord, game1.getCoordAt(9));
+    Assert.assertEquals(AxialCoordinate.of(0, 0), game1.getCoordAt(9));
+    HexCell detached = game1.getCellAt(4);
+    Assert.assertEquals(Player.X, detached.getPiece());
+    detached.setPiece(Player.O);
+    Assert.assertEquals(Player.X, game1.getPieceAt(4));
+    Assert.assertEquals(3, game1.getScore(Player.X));
+    Assert.assertThrows(IllegalArgumentException.class, () -> game1.getCoordAt(19));
+    Assert.assertEquals(Player.X, game1.getPieceAt(4));
+    Assert.assertThrows(IllegalArgumentException.class, () -> game1.getCellAt(19));
+    Assert.assertThrows(IllegalArgumentException.class, () -> game1.getPieceAt(-1));
+    Assert.assertEquals("  _ _ _ \n"
+            + " _ X O _ \n"
+            + "_ O _ X _ \n"
+            + " _ X O _ \n"
+            + "  _ _ _ \n", new ReversiTextualView(game1).toString());
+  }
+
+  @Test
+  public void testPackedMoves() {
+    MoveList moves = new MoveList(1);
+    Assert.assertThrows(IllegalStateException.class, () -> rev.getValidMoves(moves));
+    rev.startGame();
+    rev.getValidMoves(moves);
+    List<AxialCoordinate> coords = rev.getValidMoves();
+    Assert.assertEquals(coords.size(), moves.size());
+    for (int i = 0; i < moves.size(); i++) {
+      AxialCoordinate coord = coords.get(i);
+      Assert.assertEquals(rev.getCellIndex(coord.getQ(), coord.getR()), moves.get(i));
+      Assert.assertTrue(rev.isValidMoves(moves.get(i)));
+    }
+    Assert.assertFalse(rev.isValidMoves(rev.getCellIndex(0, -1)));
+    Assert.assertThrows(IllegalArgumentException.class, () -> rev.getCellIndex(4, 0));
+    Assert.assertThrows(IndexOutOfBoundsException.class, () -> moves.get(moves.size()));
+    rev.movePiece(moves.get(0));
+    Assert.assertEquals(Player.X, rev.getCurrentPlayer());
+    Assert.assertEquals(Player.O, rev.findCell(coords.get(0).getQ(), coords.get(0).getR())
+            .getPiece());
+    Assert.assertThrows(IllegalStateException.class, () -> rev.movePiece(moves.get(0)));
+    rev.getValidMoves(moves);
+    Assert.assertEquals(rev.getValidMoves().size(), moves.size());
+  }
+
+  @Test
+  public void testGameEndsWhenNoOneCanMove() {
+    Random random = new Random(16);
+    boolean endedEarly = false;
+    for (int game = 0; game < 200 && !endedEarly; game++) {
+      BasicReversi model = new BasicReversi(5);
+      model.startGame();
+      while (!model.isGameOver()) {
+        List<AxialCoordinate> moves = model.getValidMoves();
+        if (moves.isEmpty()) {
+          model.passMove();
+          continue;
+        }
+        AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+        model.movePiece(move.getQ(), move.getR());
+      }
+      Assert.assertFalse(model.hasValidMove());
+      Assert.assertThrows(IllegalStateException.class, () -> model.passMove());
+      int empty = 0;
+      for (int i = 0; i < model.getCellCount(); i++) {
+        if (model.getPieceAt(i) == null) {
+          empty++;
+        }
+      }
+      endedEarly = empty > 0;
+    }
+    Assert.assertTrue(endedEarly);
+  }
+
+  @Test
+  public void testListenersSeeTheGameEnd() {
+    Random random = new Random(16);
+    for (int game = 0; game < 30; game++) {
+      Reversi[] models = {new BasicReversi(5), new BasicReversi(5, true),
+          new BitboardReversi(5)};
+      for (Reversi model : models) {
+        List<Boolean> seen = new ArrayList<>();
+        model.addFeatureListener(() -> seen.add(model.isGameOver()));
+        model.startGame();
+        while (!model.isGameOver()) {
+          List<AxialCoordinate> moves = model.getValidMoves();
+          if (moves.isEmpty()) {
+            model.passMove();
+          } else {
+            AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+            model.movePiece(move.getQ(), move.getR());
+          }
+        }
+        Assert.assertTrue(seen.get(seen.size() - 1));
+        Assert.assertFalse(seen.subList(0, seen.size() - 1).contains(true));
+      }
+    }
+    Reversi[] passing = {new BasicReversi(5), new BasicReversi(5, true), new BitboardReversi(5)};
+    for (Reversi model : passing) {
+      List<Boolean> seen = new ArrayList<>();
+      model.startGame();
+      model.addFeatureListener(() -> seen.add(model.isGameOver()));
+      model.passMove();
+      model.passMove();
+      Assert.assertEquals(Arrays.asList(false, true), seen);
+    }
+  }
+
+  @Test
+  public void testIsValidMoveLeavesLegalMoves() {
+    BasicReversi model = new BasicReversi(7);
+    model.startGame();
+    String board = new ReversiTextualView(model).toString();
+    Assert.assertTrue(model.isValidMove(-1, -1));
+    Assert.assertFalse(model.isValidMove(0, -1));
+    Assert.assertEquals(board, new ReversiTextualView(model).toString());
+    for (Player player : Player.values()) {
+      List<AxialCoordinate> scanned = new ArrayList<>();
+      for (int cell = 0; cell < model.getCellCount(); cell++) {
+        AxialCoordinate coord = model.getCoordAt(cell);
+        if (model.getPieceAt(cell) == null
+                && !model.collectFlips(coord.getQ(), coord.getR(), player).isEmpty()) {
+          scanned.add(coord);
+        }
+      }
+      Assert.assertEquals(scanned, model.getValidMoves(player));
+    }
+  }
+
+  @Test
+  public void testMovesForEitherPlayer() {
+    BasicReversi model = new BasicReversi(7);
+    model.startGame();
+    String board = new ReversiTextualView(model).toString();
+    List<AxialCoordinate> xMoves = model.getValidMoves(Player.X);
+    List<HexCell> flips = model.collectFlips(2, -1, Player.X);
+    Assert.assertTrue(model.isValidMove(2, -1, Player.X));
+    Assert.assertFalse(model.isValidMove(0, -1, Player.X));
+    Assert.assertFalse(model.isValidMove(0, 0, Player.X));
+    Assert.assertEquals(model.getValidMoves(), model.getValidMoves(Player.O));
+    Assert.assertEquals(Player.O, model.getCurrentPlayer());
+    Assert.assertEquals(board, new ReversiTextualView(model).toString());
+    Assert.assertThrows(IllegalArgumentException.class, () -> model.getValidMoves((Player) null));
+    Assert.assertThrows(IllegalArgumentException.class,
+            () -> model.isValidMove(0, 0, null));
+    ReversiPosition position = model.snapshot();
+    Assert.assertEquals(xMoves, position.getValidMoves(Player.X));
+    Assert.assertEquals(flips, position.collectFlips(2, -1, Player.X));
+    model.passMove();
+    Assert.assertEquals(xMoves, model.getValidMoves());
+    Assert.assertEquals(flips, model.collectFlips(2, -1));
+  }
+
+  @Test
+  public void testLargeBoardMovesMatchFullScan() {
+    BasicReversi model = new BasicReversi(21);
+    model.startGame();
+    Random random = new Random(18);
+    ReversiPosition position = model.snapshot();
+    for (int ply = 0; ply < 60 && !model.isGameOver(); ply++) {
+      List<AxialCoordinate> moves = model.getValidMoves();
+      List<AxialCoordinate> scanned = new ArrayList<>();
+      for (int i = 0; i < model.getCellCount(); i++) {
+        HexCell cell = model.getCellAt(i);
+        if (cell.getPiece() == null
+                && !model.collectFlips(cell.getQ(), cell.getR()).isEmpty()) {
+          scanned.add(AxialCoordinate.of(cell.getQ(), cell.getR()));
+        }
+      }
+      Assert.assertEquals(scanned, moves);
+      Assert.assertEquals(scanned, position.getValidMoves());
+      if (moves.isEmpty()) {
+        model.passMove();
+        position = position.pass();
+        continue;
+      }
+      AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+      MoveRecord undo = model.makeMove(model.getCellIndex(move.getQ(), move.getR()));
+      model.unmakeMove(undo);
+      Assert.assertEquals(moves, model.getValidMoves());
+      model.movePiece(move.getQ(), move.getR());
+      position = position.play(move.getQ(), move.getR());
+    }
+  }
+
+  @Test
+  public void testPatternFlipsMatchRayWalk() {
+    Random random = new Random(21);
+    for (int rows = 11; rows <= 13; rows += 2) {
+      BasicReversi model = new BasicReversi(rows);
+      model.startGame();
+      for (int ply = 0; ply < 80 && !model.isGameOver(); ply++) {
+        ReversiPosition position = model.snapshot();
+        for (Player player : Player.values()) {
+          List<AxialCoordinate> moves = model.getValidMoves(player);
+          Assert.assertEquals(position.getValidMoves(player), moves);
+          for (AxialCoordinate move : moves) {
+            Assert.assertEquals(position.collectFlips(move.getQ(), move.getR(), player),
+                    model.collectFlips(move.getQ(), move.getR(), player));
+          }
+        }
+        List<AxialCoordinate> moves = model.getValidMoves();
+        if (moves.isEmpty()) {
+          model.passMove();
+        } else {
+          AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+          model.movePiece(move.getQ(), move.getR());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testScratchBoards() {
+    BasicReversi model = new BasicReversi(7);
+    model.startGame();
+    model.movePiece(-1, -1);
+    BasicReversi scratch = ScratchBoards.borrow(model);
+    Assert.assertNotSame(model, scratch);
+    Assert.assertEquals(new ReversiTextualView(model).toString(),
+            new ReversiTextualView(scratch).toString());
+    Assert.assertEquals(model.getPositionKey(), scratch.getPositionKey());
+    Assert.assertEquals(model.getValidMoves(), scratch.getValidMoves());
+    AxialCoordinate move = scratch.getValidMoves().get(0);
+    scratch.movePiece(move.getQ(), move.getR());
+    Assert.assertNotEquals(model.getPositionKey(), scratch.getPositionKey());
+    ScratchBoards.release(scratch);
+
+    BitboardReversi bits = new BitboardReversi(7);
+    bits.startGame();
+    BasicReversi reused = ScratchBoards.borrow(bits);
+    Assert.assertSame(scratch, reused);
+    Assert.assertEquals(bits.getPositionKey(), reused.getPositionKey());
+    Assert.assertEquals(bits.getValidMoves(), reused.getValidMoves());
+    Assert.assertEquals(3, reused.getScore(Player.X));
+    BasicReversi nested = ScratchBoards.borrow(model);
+    Assert.assertNotSame(reused, nested);
+    ScratchBoards.release(nested);
+    ScratchBoards.release(reused);
+    Assert.assertThrows(IllegalStateException.class, () -> ScratchBoards.release(reused));
+    Assert.assertNotSame(ScratchBoards.borrow(model), ScratchBoards.borrow(model));
+    Assert.assertThrows(IllegalArgumentException.class,
+            () -> new BasicReversi(7).copyFrom(new BasicReversi(5)));
+    Assert.assertThrows(IllegalStateException.class,
+            () -> ScratchBoards.borrow(new BasicReversi(9)));
+  }
+
+  @Test
+  public void testCopyKeepsPendingPass() {
+    BitboardReversi bits = new BitboardReversi(7);
+    bits.startGame();
+    Assert.assertEquals(0, bits.getConsecutivePasses());
+    bits.passMove();
+    Assert.assertEquals(1, bits.getConsecutivePasses());
+    Assert.assertEquals(1, ReversiPosition.of(bits).getConsecutivePasses());
+    BasicReversi copy = new BasicReversi(7);
+    copy.copyFrom(bits);
+    Assert.assertEquals(1, copy.getConsecutivePasses());
+    copy.passMove();
+    Assert.assertTrue(copy.isGameOver());
+    Assert.assertEquals(2, copy.getConsecutivePasses());
+    BasicReversi scratch = ScratchBoards.borrow(bits);
+    try {
+      Assert.assertEquals(1, scratch.getConsecutivePasses());
+      scratch.passMove();
+      Assert.assertTrue(scratch.isGameOver());
+    } finally {
+      ScratchBoards.release(scratch);
+    }
+  }
+
+  @Test
+  public void testMoveCache() {
+    MoveCache cache = new MoveCache(2);
+    BasicReversi first = new BasicReversi(7);
+    BasicReversi second = new BasicReversi(7, true);
+    BasicReversi plain = new BasicReversi(7);
+    first.setMoveCache(cache);
+    second.setMoveCache(cache);
+    first.startGame();
+    second.startGame();
+    plain.startGame();
+    int[] moves = new int[first.getCellCount()];
+    int[] flips = new int[moves.length];
+    int[] expectedMoves = new int[moves.length];
+    int[] expectedFlips = new int[moves.length];
+    int count = plain.getMoveFlipCounts(expectedMoves, expectedFlips);
+    Assert.assertEquals(count, first.getMoveFlipCounts(moves, flips));
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertEquals(count, second.getMoveFlipCounts(moves, flips));
+    Assert.assertEquals(1, cache.getHits());
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals(expectedMoves[i], moves[i]);
+      Assert.assertEquals(expectedFlips[i], flips[i]);
+    }
+
+    first.movePiece(-1, -1);
+    plain.movePiece(-1, -1);
+    count = plain.getMoveFlipCounts(expectedMoves, expectedFlips);
+    Assert.assertEquals(count, first.getMoveFlipCounts(moves, flips));
+    Assert.assertEquals(2, cache.getMisses());
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals(expectedMoves[i], moves[i]);
+      Assert.assertEquals(expectedFlips[i], flips[i]);
+    }
+    Assert.assertEquals(2, cache.getSize());
+
+    // the start position was used since it was stored, so the clock spares it
+    second.movePiece(1, 1);
+    second.getMoveFlipCounts(moves, flips);
+    Assert.assertEquals(2, cache.getSize());
+    Assert.assertEquals(3, cache.getMisses());
+    BasicReversi restart = new BasicReversi(7);
+    restart.setMoveCache(cache);
+    restart.startGame();
+    restart.getMoveFlipCounts(moves, flips);
+    Assert.assertEquals(2, cache.getHits());
+    // the position after the first move was not, and copies share the cache
+    new BasicReversi(first).getMoveFlipCounts(moves, flips);
+    Assert.assertEquals(4, cache.getMisses());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getHits() + cache.getMisses());
+    Assert.assertEquals(2, cache.getCapacity());
+    Assert.assertThrows(IllegalArgumentException.class, () -> new MoveCache(0));
+    BasicReversi unstarted = new BasicReversi(7);
+    unstarted.setMoveCache(cache);
+    Assert.assertThrows(IllegalStateException.class,
+        () -> unstarted.getMoveFlipCounts(moves, flips));
+  }
+
+  @Test
+  public void testMoveCacheEvictsCleanly() {
+    MoveCache cache = new MoveCache(5);
+    Random rand = new Random(24);
+    int[] moves = new int[3];
+    int[] flips = new int[3];
+    for (int i = 0; i < 2000; i++) {
+      // few keys on three home entries, so probes run into each other and evictions shift them
+      long key = key(rand.nextInt(12));
+      int count = cache.lookup(37, key, moves, flips);
+      if (count < 0) {
+        cache.store(37, key, new int[] {(int) (key >>> 40), 1, 2}, new int[] {3, 4, 5}, 3);
+      } else {
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(key >>> 40, moves[0]);
+        Assert.assertEquals(5, flips[2]);
+      }
+      Assert.assertTrue(cache.getSize() <= 5);
+    }
+    Assert.assertEquals(5, cache.getSize());
+    Assert.assertEquals(2000, cache.getHits() + cache.getMisses());
+    Assert.assertTrue(cache.getHits() > 0);
+    // every position the cache holds can still be reached through the table
+    long hits = cache.getHits();
+    for (int k = 0; k < 12; k++) {
+      cache.lookup(37, key(k), moves, flips);
+    }
+    Assert.assertEquals(hits + 5, cache.getHits());
+    // a key stored for one board size is not found for another
+    cache.store(37, 99, moves, flips, 3);
+    Assert.assertEquals(-1, cache.lookup(61, 99, moves, flips));
+  }
+
+  /**
+   * Makes the position key of a made-up position for the move cache tests.
+   *
+   * @param number the number of the position
+   * @return a key with the number in its high bits and its table entry in its low bits
+   */
+  private static long key(int number) {
+    return (long) number << 40 | number % 3;
+  }
+}
@@ -0,0 +1,112 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import cs3500.reversi.model.AxialCoordinate;
+import cs3500.reversi.model.BasicReversi;
+import cs3500.reversi.model.BitboardReversi;
+import cs3500.reversi.model.MostPointsCapturedStrategy;
+import cs3500.reversi.model.Player;
+import cs3500.reversi.model.ReversiPosition;
+import cs3500.reversi.view.ReversiTextualView;
+
+/**
+ * This class contains JUnit tests for ReversiPosition snapshots, checking they stay fixed
+ * while the game moves on and that child positions follow the live game.
+ */
+public class TestReversiPosition {
+  BasicReversi rev;
+
+  @Before
+  public void init() {
+    this.rev = new BasicReversi(7);
+  }
+
+  @Test
+  public void testSnapshotIsFixed() {
+    Assert.assertThrows(IllegalStateException.class, () -> rev.snapshot());
+    rev.startGame();
+    ReversiPosition start = rev.snapshot();
+    Assert.assertSame(start, rev.snapshot());
+    String before = new ReversiTextualView(start).toString();
+    rev.movePiece(-1, -1);
+    Assert.assertNotSame(start, rev.snapshot());
+    Assert.assertEquals(before, new ReversiTextualView(start).toString());
+    Assert.assertEquals(Player.O, start.getCurrentPlayer());
+    Assert.assertEquals(3, start.getScore(Player.X));
+    start.findCell(0, 0).setPiece(Player.X);
+    Assert.assertNull(start.findCell(0, 0).getPiece());
+  }
+
+  @Test
+  public void testPlayMatchesGame() {
+    rev.startGame();
+    Random random = new Random(8);
+    ReversiPosition position = rev.snapshot();
+    while (!rev.isGameOver()) {
+      List<AxialCoordinate> moves = rev.getValidMoves();
+      Assert.assertEquals(!moves.isEmpty(), position.hasValidMove());
+      Iterator<AxialCoordinate> lazy = position.validMoveIterator();
+      for (AxialCoordinate expected : moves) {
+        Assert.assertEquals(expected, lazy.next());
+      }
+      Assert.assertFalse(lazy.hasNext());
+      Assert.assertEquals(moves, position.getValidMoves());
+      Assert.assertEquals(rev.getPositionKey(), position.getPositionKey());
+      Assert.assertEquals(rev.getScore(Player.X), position.getScore(Player.X));
+      Assert.assertEquals(rev.getScore(Player.O), position.getScore(Player.O));
+      if (moves.isEmpty()) {
+        rev.passMove();
+        position = position.pass();
+      } else {
+        AxialCoordinate move = moves.get(random.nextInt(moves.size()));
+        ReversiPosition parent = position;
+        String parentBoard = new ReversiTextualView(parent).toString();
+        rev.movePiece(move.getQ(), move.getR());
+        position = position.play(move.getQ(), move.getR());
+        Assert.assertEquals(parentBoard, new ReversiTextualView(parent).toString());
+      }
+      Assert.assertEquals(new ReversiTextualView(rev).toString(),
+              new ReversiTextualView(position).toString());
+    }
+    Assert.assertTrue(position.isGameOver());
+  }
+
+  @Test
+  public void testPlayErrors() {
+    rev.startGame();
+    ReversiPosition position = rev.snapshot();
+    Assert.assertThrows(IllegalArgumentException.class, () -> position.play(4, 0));
+    Assert.assertThrows(IllegalStateException.class, () -> position.play(0, -1));
+    Assert.assertThrows(IllegalStateException.class, () -> position.play(0, 0));
+    Assert.assertThrows(IllegalStateException.class, () -> position.pass().pass().pass());
+    Assert.assertTrue(position.pass().pass().isGameOver());
+  }
+
+  @Test
+  public void testMoveListsAreUnmodifiable() {
+    rev.startGame();
+    ReversiPosition position = rev.snapshot();
+    for (Player player : Player.values()) {
+      List<AxialCoordinate> moves = position.getValidMoves(player);
+      Assert.assertEquals(rev.getValidMoves(player), moves);
+      Assert.assertThrows(UnsupportedOperationException.class, () -> moves.remove(0));
+    }
+  }
+
+  @Test
+  public void testStrategyOnAnyModel() {
+    BitboardReversi bits = new BitboardReversi(7);
+    rev.startGame();
+    bits.startGame();
+    MostPointsCapturedStrategy strategy = new MostPointsCapturedStrategy();
+    Optional<AxialCoordinate> fromBasic = strategy.chooseMove(rev, Player.O);
+    Assert.assertEquals(fromBasic, strategy.chooseMove(bits, Player.O));
+    Assert.assertEquals(fromBasic, strategy.chooseMove(ReversiPosition.of(bits), Player.O));
+  }
+}